@@ -0,0 +1,17 @@
+package com.sky.constant;
+
+/**
+ * 缓存名称常量类
+ */
+public class CacheConstant {
+
+    //C端菜品缓存，key为分类id
+    public static final String DISH_CACHE = "dishCache";
+
+    //C端套餐缓存，key为分类id
+    public static final String SETMEAL_CACHE = "setmealCache";
+
+    //C端整份菜单快照，key为菜单版本号
+    public static final String MENU_SNAPSHOT_CACHE = "menuSnapshotCache";
+
+}
@@ -24,5 +24,14 @@ public class MessageConstant {
     public static final String ORDER_STATUS_ERROR = "订单状态错误";
     public static final String ORDER_NOT_FOUND = "订单不存在";
     public static final String ALREADY_EXISTS = "已存在";
+    public static final String CATEGORY_NOT_FOUND = "分类不存在";
+    public static final String CURSOR_INVALID = "分页游标无效";
+    public static final String DATE_RANGE_INVALID = "日期范围不合法";
+    public static final String ITEM_NOT_FOUND = "商品不存在";
+    public static final String ITEM_DISABLED = "商品已停售";
+    public static final String CART_OPERATION_INVALID = "购物车操作不合法";
+    public static final String CART_NUMBER_EXCEEDED = "购物车商品数量超出上限";
+    public static final String PRICE_CHANGED = "商品价格已变化，请刷新购物车";
+    public static final String ORDER_AMOUNT_INVALID = "订单金额有误，请刷新后重试";
 
 }
@@ -0,0 +1,55 @@
+package com.sky.properties;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Component
+@ConfigurationProperties(prefix = "sky.cache")
+@Data
+public class MenuCacheProperties {
+
+    /**
+     * 进程内近端缓存：每个缓存的最大条目数、写入后过期时间
+     */
+    private long localMaximumSize = 1000;
+    private long localTtlSeconds = 60;
+
+    /**
+     * Redis远端缓存的过期时间
+     */
+    private long remoteTtlSeconds = 86400;
+
+    /**
+     * 空结果的过期时间，防止不存在的数据反复穿透到数据库
+     */
+    private long negativeTtlSeconds = 60;
+
+    /**
+     * 广播缓存失效消息的Redis频道
+     */
+    private String invalidationChannel = "sky:cache:invalidate";
+
+    /**
+     * 缓存重建时的分布式租约锁时长，以及未抢到锁时等待其他节点重建的最长时间
+     */
+    private long rebuildLeaseMillis = 3000;
+    private long rebuildWaitMillis = 2000;
+
+    /**
+     * 失效后保留旧值的时间，重建期间并发请求直接返回旧值
+     */
+    private long staleTtlSeconds = 300;
+
+    /**
+     * 菜单变更后延迟多久刷新缓存，期间同一分类的多次变更合并为一次刷新
+     */
+    private long refreshDelayMillis = 200;
+
+    /**
+     * 分类布隆过滤器的误判率，以及分类变更通知频道
+     */
+    private double bloomFalsePositiveRate = 0.01;
+    private String categoryChannel = "sky:category:changed";
+
+}
@@ -0,0 +1,22 @@
+package com.sky.properties;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Component
+@ConfigurationProperties(prefix = "sky.order-number")
+@Data
+public class OrderNumberProperties {
+
+    /**
+     * 节点id，0~1023；小于0时启动时从redis租用
+     */
+    private int nodeId = -1;
+
+    /**
+     * 节点id租约的有效期，按三分之一的间隔续期
+     */
+    private long leaseTtlSeconds = 60;
+
+}
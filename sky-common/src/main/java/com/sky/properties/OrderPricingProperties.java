@@ -0,0 +1,31 @@
+package com.sky.properties;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+
+@Component
+@ConfigurationProperties(prefix = "sky.order-pricing")
+@Data
+public class OrderPricingProperties {
+
+    /**
+     * 配送费，单位元
+     */
+    private BigDecimal deliveryFee = new BigDecimal(6);
+
+    /**
+     * 每份商品的打包费，单位元；订单表中打包费按整元保存，只能配置为非负整数
+     */
+    private BigDecimal packFee = BigDecimal.ONE;
+
+    public void setPackFee(BigDecimal packFee) {
+        if (packFee == null || packFee.signum() < 0 || packFee.stripTrailingZeros().scale() > 0) {
+            throw new IllegalArgumentException("打包费需为非负整数元:" + packFee);
+        }
+        this.packFee = packFee;
+    }
+
+}
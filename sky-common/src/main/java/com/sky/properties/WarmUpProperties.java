@@ -0,0 +1,27 @@
+package com.sky.properties;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Component
+@ConfigurationProperties(prefix = "sky.warm-up")
+@Data
+public class WarmUpProperties {
+
+    /**
+     * 是否在启动时预热
+     */
+    private boolean enabled = true;
+
+    /**
+     * 预热的总时间预算，超出后跳过剩余步骤
+     */
+    private long budgetMillis = 30000;
+
+    /**
+     * 模拟请求的轮数，用于触发JIT编译
+     */
+    private int requestRounds = 50;
+
+}
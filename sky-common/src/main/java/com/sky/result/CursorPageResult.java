@@ -0,0 +1,24 @@
+package com.sky.result;
+
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * 游标分页查询结果，total为-1表示未统计总数
+ */
+@Data
+@EqualsAndHashCode(callSuper = true)
+@NoArgsConstructor
+public class CursorPageResult extends PageResult {
+
+    private String nextCursor; //下一页的游标，为null表示没有更多数据
+
+    public CursorPageResult(long total, List records, String nextCursor) {
+        super(total, records);
+        this.nextCursor = nextCursor;
+    }
+
+}
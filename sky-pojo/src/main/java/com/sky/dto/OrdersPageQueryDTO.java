@@ -27,4 +27,10 @@ public class OrdersPageQueryDTO implements Serializable {
 
     private Long userId;
 
+    //游标分页：不为null时按游标查询，第一页传空字符串
+    private String cursor;
+
+    //游标分页时是否需要返回总数
+    private Boolean withTotal;
+
 }
@@ -0,0 +1,14 @@
+package com.sky.dto;
+
+import lombok.Data;
+
+import java.io.Serializable;
+import java.util.List;
+
+@Data
+public class ShoppingCartBatchDTO implements Serializable {
+
+    //按顺序执行的购物车操作
+    private List<ShoppingCartOperationDTO> operations;
+
+}
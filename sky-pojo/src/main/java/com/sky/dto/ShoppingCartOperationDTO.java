@@ -0,0 +1,16 @@
+package com.sky.dto;
+
+import lombok.Data;
+
+import java.io.Serializable;
+
+@Data
+public class ShoppingCartOperationDTO implements Serializable {
+
+    private Long dishId;
+    private Long setmealId;
+    private String dishFlavor;
+    //数量变化，正数为添加，负数为减少
+    private Integer delta;
+
+}
@@ -45,6 +45,9 @@ public class Orders implements Serializable {
     //订单状态 1待付款 2待接单 3已接单 4派送中 5已完成 6已取消 7退款
     private Integer status;
 
+    //上一次状态流转前的状态
+    private Integer prevStatus;
+
     //下单用户id
     private Long userId;
 
@@ -0,0 +1,36 @@
+package com.sky.vo;
+
+import com.sky.entity.Category;
+import com.sky.entity.Setmeal;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * 指定版本之后的菜单变更
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class MenuChangesVO implements Serializable {
+
+    private Long version;//当前菜单版本号
+
+    private Boolean fullReload;//版本过旧或无效，客户端需要重新拉取快照
+
+    private List<Category> categories;//分类有变化时返回全部起售中的分类，否则为null
+
+    private List<DishVO> dishes;//有变化且仍在起售的菜品
+
+    private List<Long> removedDishIds;//已删除或停售的菜品id
+
+    private List<Setmeal> setmeals;//有变化且仍在起售的套餐
+
+    private List<Long> removedSetmealIds;//已删除或停售的套餐id
+
+}
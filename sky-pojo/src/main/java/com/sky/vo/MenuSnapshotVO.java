@@ -0,0 +1,30 @@
+package com.sky.vo;
+
+import com.sky.entity.Category;
+import com.sky.entity.Setmeal;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * 整份菜单快照
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class MenuSnapshotVO implements Serializable {
+
+    private Long version;//菜单版本号
+
+    private List<Category> categories;//起售中的分类
+
+    private List<DishVO> dishes;//起售中的菜品，包含口味
+
+    private List<Setmeal> setmeals;//起售中的套餐
+
+}
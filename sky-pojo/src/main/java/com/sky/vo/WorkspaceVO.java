@@ -0,0 +1,29 @@
+package com.sky.vo;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+
+/**
+ * 工作台数据，一次返回工作台页面需要的全部数据
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class WorkspaceVO implements Serializable {
+    //今日运营数据
+    private BusinessDataVO businessData;
+
+    //订单管理数据
+    private OrderOverViewVO orderOverView;
+
+    //菜品总览
+    private DishOverViewVO dishOverView;
+
+    //套餐总览
+    private SetmealOverViewVO setmealOverView;
+}
@@ -0,0 +1,31 @@
+package com.sky.cache;
+
+import com.alibaba.fastjson.JSON;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 订阅缓存失效频道，收到消息后清理本节点的近端缓存
+ */
+@Slf4j
+public class CacheInvalidationListener implements MessageListener {
+
+    private final TwoLevelCacheManager cacheManager;
+
+    public CacheInvalidationListener(TwoLevelCacheManager cacheManager) {
+        this.cacheManager = cacheManager;
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String body = new String(message.getBody(), StandardCharsets.UTF_8);
+        try {
+            cacheManager.onMessage(JSON.parseObject(body, CacheMessage.class));
+        } catch (Exception e) {
+            log.error("缓存失效消息处理失败:{}", body, e);
+        }
+    }
+}
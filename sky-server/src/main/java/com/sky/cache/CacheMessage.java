@@ -0,0 +1,25 @@
+package com.sky.cache;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+
+/**
+ * 跨节点缓存失效消息
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CacheMessage implements Serializable {
+
+    //发送消息的节点
+    private String nodeId;
+
+    //缓存名称
+    private String cacheName;
+
+    //失效的key，为null时表示清空整个缓存
+    private String key;
+}
@@ -0,0 +1,145 @@
+package com.sky.cache;
+
+import com.sky.entity.Category;
+import com.sky.event.MenuChangeEvent;
+import com.sky.mapper.CategoryMapper;
+import com.sky.properties.MenuCacheProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * 合法分类id的布隆过滤器，C端按分类查询菜品、套餐前先判断，不存在的分类直接拒绝，不查缓存也不查数据库
+ * 分类变更后本节点重建，并通过redis频道通知其他节点重建
+ */
+@Component("categoryBloomFilter")
+@Slf4j
+public class CategoryBloomFilter implements MessageListener {
+
+    @Autowired
+    private CategoryMapper categoryMapper;
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+    @Autowired
+    private MenuCacheProperties menuCacheProperties;
+
+    //过滤器未构建完成前为null，此时不拦截
+    private volatile Filter filter;
+
+    /**
+     * 判断分类id是否可能存在
+     * @param categoryId
+     * @return false表示一定不存在
+     */
+    public boolean mightContain(Long categoryId) {
+        if (categoryId == null) {
+            return false;
+        }
+        Filter current = filter;
+        return current == null || current.mightContain(categoryId);
+    }
+
+    /**
+     * 从数据库重建过滤器
+     */
+    public synchronized void rebuild() {
+        List<Category> categories = categoryMapper.list(null);
+        Filter next = new Filter(categories.size(), menuCacheProperties.getBloomFalsePositiveRate());
+        categories.forEach(category -> next.put(category.getId()));
+        filter = next;
+        log.info("分类布隆过滤器重建完成，分类数量:{}", categories.size());
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void init() {
+        rebuild();
+    }
+
+    /**
+     * 兜底定时重建，防止丢失通知消息
+     */
+    @Scheduled(fixedDelay = 10 * 60 * 1000, initialDelay = 10 * 60 * 1000)
+    public void scheduledRebuild() {
+        rebuild();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onMenuChange(MenuChangeEvent event) {
+        if (event.getType() != MenuChangeEvent.Type.CATEGORY) {
+            return;
+        }
+        rebuild();
+        stringRedisTemplate.convertAndSend(menuCacheProperties.getCategoryChannel(), String.valueOf(event.getCategoryIds()));
+    }
+
+    /**
+     * 收到其他节点的分类变更通知
+     */
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        try {
+            rebuild();
+        } catch (Exception e) {
+            log.error("分类布隆过滤器重建失败", e);
+        }
+    }
+
+    /**
+     * 位数组 + k次哈希，使用双重哈希 h1 + i * h2 生成k个位置
+     */
+    private static class Filter {
+
+        private final BitSet bits;
+        private final int bitSize;
+        private final int hashCount;
+
+        Filter(int expected, double fpp) {
+            int n = Math.max(expected, 16);
+            this.bitSize = (int) Math.ceil(-n * Math.log(fpp) / (Math.log(2) * Math.log(2)));
+            this.hashCount = Math.max(1, (int) Math.round((double) bitSize / n * Math.log(2)));
+            this.bits = new BitSet(bitSize);
+        }
+
+        void put(long value) {
+            long hash = mix(value);
+            int h1 = (int) hash;
+            int h2 = (int) (hash >>> 32);
+            for (int i = 1; i <= hashCount; i++) {
+                bits.set(index(h1 + i * h2));
+            }
+        }
+
+        boolean mightContain(long value) {
+            long hash = mix(value);
+            int h1 = (int) hash;
+            int h2 = (int) (hash >>> 32);
+            for (int i = 1; i <= hashCount; i++) {
+                if (!bits.get(index(h1 + i * h2))) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private int index(int combined) {
+            return (combined & Integer.MAX_VALUE) % bitSize;
+        }
+
+        //splitmix64
+        private static long mix(long z) {
+            z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+            z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+            return z ^ (z >>> 31);
+        }
+    }
+}
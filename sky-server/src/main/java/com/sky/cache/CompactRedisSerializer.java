@@ -0,0 +1,209 @@
+package com.sky.cache;
+
+import com.sky.entity.DailyBusinessStats;
+import org.springframework.cache.support.NullValue;
+import org.springframework.data.redis.serializer.JdkSerializationRedisSerializer;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 紧凑的redis value序列化器
+ * 格式：魔数(1字节) + 类型id(1字节) + 类型自己的二进制内容，常用类型各自注册编解码器；
+ * 未注册的类型仍使用JDK序列化。读取时没有魔数的数据按JDK格式解析，切换序列化器不需要清空缓存
+ */
+public class CompactRedisSerializer implements RedisSerializer<Object> {
+
+    //JDK序列化的数据以0xAC开头，不会与魔数冲突
+    private static final byte MAGIC = (byte) 0xC5;
+
+    private final JdkSerializationRedisSerializer jdkSerializer = new JdkSerializationRedisSerializer();
+
+    private final Map<Class<?>, Codec<?>> codecsByType = new HashMap<>();
+    private final Codec<?>[] codecsById = new Codec<?>[256];
+
+    public CompactRedisSerializer() {
+        register(new Codec<>(1, NullValue.class) {
+            protected void write(DataOutputStream out, NullValue value) {
+            }
+
+            protected NullValue read(DataInputStream in) {
+                return (NullValue) NullValue.INSTANCE;
+            }
+        });
+        register(new Codec<>(2, Integer.class) {
+            protected void write(DataOutputStream out, Integer value) throws IOException {
+                out.writeInt(value);
+            }
+
+            protected Integer read(DataInputStream in) throws IOException {
+                return in.readInt();
+            }
+        });
+        register(new Codec<>(3, Long.class) {
+            protected void write(DataOutputStream out, Long value) throws IOException {
+                out.writeLong(value);
+            }
+
+            protected Long read(DataInputStream in) throws IOException {
+                return in.readLong();
+            }
+        });
+        register(new Codec<>(4, String.class) {
+            protected void write(DataOutputStream out, String value) throws IOException {
+                writeBytes(out, value.getBytes(StandardCharsets.UTF_8));
+            }
+
+            protected String read(DataInputStream in) throws IOException {
+                return new String(readBytes(in), StandardCharsets.UTF_8);
+            }
+        });
+        register(new Codec<>(5, MenuPayload.class) {
+            protected void write(DataOutputStream out, MenuPayload value) throws IOException {
+                out.writeBoolean(value.isEmpty());
+                out.writeUTF(value.getDigest());
+                writeBytes(out, value.getJson());
+                writeBytes(out, value.getGzip());
+            }
+
+            protected MenuPayload read(DataInputStream in) throws IOException {
+                boolean empty = in.readBoolean();
+                String digest = in.readUTF();
+                byte[] json = readBytes(in);
+                byte[] gzip = readBytes(in);
+                return new MenuPayload(json, gzip, digest, empty);
+            }
+        });
+        register(new Codec<>(6, DailyBusinessStats.class) {
+            protected void write(DataOutputStream out, DailyBusinessStats value) throws IOException {
+                BigDecimal turnover = value.getTurnover() == null ? BigDecimal.ZERO : value.getTurnover();
+                out.writeLong(value.getStatDate().toEpochDay());
+                out.writeInt(turnover.scale());
+                out.writeLong(turnover.unscaledValue().longValueExact());
+                out.writeInt(value.getTotalOrders());
+                out.writeInt(value.getValidOrders());
+                out.writeInt(value.getNewUsers());
+            }
+
+            protected DailyBusinessStats read(DataInputStream in) throws IOException {
+                LocalDate statDate = LocalDate.ofEpochDay(in.readLong());
+                int scale = in.readInt();
+                BigDecimal turnover = BigDecimal.valueOf(in.readLong(), scale);
+                return DailyBusinessStats.builder()
+                        .statDate(statDate)
+                        .turnover(turnover)
+                        .totalOrders(in.readInt())
+                        .validOrders(in.readInt())
+                        .newUsers(in.readInt())
+                        .build();
+            }
+        });
+    }
+
+    /**
+     * 注册编解码器，类型id一旦使用不能修改
+     * @param codec
+     */
+    public void register(Codec<?> codec) {
+        if (codecsById[codec.id] != null) {
+            throw new IllegalArgumentException("重复的类型id:" + codec.id);
+        }
+        codecsById[codec.id] = codec;
+        codecsByType.put(codec.type, codec);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public byte[] serialize(Object value) throws SerializationException {
+        if (value == null) {
+            return new byte[0];
+        }
+        Codec<Object> codec = (Codec<Object>) codecsByType.get(value.getClass());
+        if (codec == null) {
+            return jdkSerializer.serialize(value);
+        }
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeByte(MAGIC);
+            out.writeByte(codec.id);
+            codec.write(out, value);
+            out.flush();
+            return bytes.toByteArray();
+        } catch (IOException e) {
+            throw new SerializationException("序列化失败:" + value.getClass().getName(), e);
+        }
+    }
+
+    @Override
+    public Object deserialize(byte[] bytes) throws SerializationException {
+        if (bytes == null || bytes.length == 0) {
+            return null;
+        }
+        if (bytes[0] != MAGIC) {
+            //旧数据
+            return jdkSerializer.deserialize(bytes);
+        }
+        Codec<?> codec = bytes.length > 1 ? codecsById[bytes[1] & 0xFF] : null;
+        if (codec == null) {
+            throw new SerializationException("未知的类型id");
+        }
+        try {
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes, 2, bytes.length - 2));
+            return codec.read(in);
+        } catch (IOException e) {
+            throw new SerializationException("反序列化失败:" + codec.type.getName(), e);
+        }
+    }
+
+    private static void writeBytes(DataOutputStream out, byte[] value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        out.writeInt(value.length);
+        out.write(value);
+    }
+
+    private static byte[] readBytes(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] value = new byte[length];
+        in.readFully(value);
+        return value;
+    }
+
+    /**
+     * 单个类型的编解码器
+     * @param <T>
+     */
+    public abstract static class Codec<T> {
+
+        private final int id;
+        private final Class<T> type;
+
+        protected Codec(int id, Class<T> type) {
+            if (id <= 0 || id > 255) {
+                throw new IllegalArgumentException("类型id需在1~255之间:" + id);
+            }
+            this.id = id;
+            this.type = type;
+        }
+
+        protected abstract void write(DataOutputStream out, T value) throws IOException;
+
+        protected abstract T read(DataInputStream in) throws IOException;
+    }
+}
@@ -0,0 +1,120 @@
+package com.sky.cache;
+
+import com.sky.constant.CacheConstant;
+import com.sky.event.MenuChangeEvent;
+import com.sky.properties.MenuCacheProperties;
+import com.sky.service.MenuService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 菜单缓存刷新：事务提交后异步重新查询受影响分类的菜品、套餐并覆盖缓存，
+ * 缓存中始终有数据，用户不会因为管理端修改而遇到缓存未命中
+ * 延迟时间内同一分类的多次变更只刷新一次，同时预先生成新版本的菜单快照
+ */
+@Component
+@Slf4j
+public class MenuCacheRefresher {
+
+    @Autowired
+    private MenuService menuService;
+    @Autowired
+    private MenuChangeLog menuChangeLog;
+    @Autowired
+    private CacheManager cacheManager;
+    @Autowired
+    private MenuCacheProperties menuCacheProperties;
+
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "menu-cache-refresher");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    //待刷新的分类
+    private final Set<Long> pendingDishCategories = ConcurrentHashMap.newKeySet();
+    private final Set<Long> pendingSetmealCategories = ConcurrentHashMap.newKeySet();
+    private final AtomicBoolean scheduled = new AtomicBoolean(false);
+
+    /**
+     * 在记录菜单版本之后执行
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    @Order(Ordered.LOWEST_PRECEDENCE)
+    public void onMenuChange(MenuChangeEvent event) {
+        log.info("菜单变更，刷新缓存:{}", event);
+        switch (event.getType()) {
+            case DISH -> pendingDishCategories.addAll(event.getCategoryIds());
+            case SETMEAL -> pendingSetmealCategories.addAll(event.getCategoryIds());
+            case CATEGORY -> {
+                pendingDishCategories.addAll(event.getCategoryIds());
+                pendingSetmealCategories.addAll(event.getCategoryIds());
+            }
+        }
+        if (scheduled.compareAndSet(false, true)) {
+            executor.schedule(this::refresh, menuCacheProperties.getRefreshDelayMillis(), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void refresh() {
+        //先清除标记，刷新期间的新变更会再安排一次刷新
+        scheduled.set(false);
+        for (Long categoryId : drain(pendingDishCategories)) {
+            try {
+                menuService.refreshDishPayload(categoryId);
+            } catch (Exception e) {
+                log.error("刷新菜品缓存失败，分类id:{}", categoryId, e);
+                evict(CacheConstant.DISH_CACHE, categoryId);
+            }
+        }
+        for (Long categoryId : drain(pendingSetmealCategories)) {
+            try {
+                menuService.refreshSetmealPayload(categoryId);
+            } catch (Exception e) {
+                log.error("刷新套餐缓存失败，分类id:{}", categoryId, e);
+                evict(CacheConstant.SETMEAL_CACHE, categoryId);
+            }
+        }
+        try {
+            menuService.getSnapshotPayload(menuChangeLog.currentVersion());
+        } catch (Exception e) {
+            //快照会在下次请求时重新生成
+            log.error("菜单快照生成失败", e);
+        }
+    }
+
+    private List<Long> drain(Set<Long> pending) {
+        List<Long> categoryIds = new ArrayList<>(pending);
+        pending.removeAll(categoryIds);
+        return categoryIds;
+    }
+
+    //刷新失败时删除缓存，避免一直返回旧数据
+    private void evict(String cacheName, Long categoryId) {
+        Cache cache = cacheManager.getCache(cacheName);
+        if (cache != null) {
+            cache.evict(categoryId);
+        }
+    }
+
+    @PreDestroy
+    public void destroy() {
+        executor.shutdown();
+    }
+}
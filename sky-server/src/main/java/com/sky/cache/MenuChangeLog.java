@@ -0,0 +1,133 @@
+package com.sky.cache;
+
+import com.sky.event.MenuChangeEvent;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 菜单版本号与变更日志
+ * 每次菜单变更后版本号加1，并在有序集合中记录变更的菜品、套餐、分类id，score为变更时的版本号，
+ * 客户端带上自己持有的版本号即可查询之后的增量变更
+ */
+@Component
+@Slf4j
+public class MenuChangeLog {
+
+    private static final String VERSION_KEY = "menu:version";
+    private static final String DISH_CHANGES_KEY = "menu:changes:dish";
+    private static final String SETMEAL_CHANGES_KEY = "menu:changes:setmeal";
+    private static final String CATEGORY_CHANGES_KEY = "menu:changes:category";
+    //低于该版本的变更记录已被清理
+    private static final String FLOOR_KEY = "menu:changes:floor";
+
+    //保留最近多少个版本的变更记录
+    private static final long RETAINED_VERSIONS = 1000;
+
+    //版本号加1与记录变更在一个脚本中完成，读到新版本号时一定能查到对应的变更
+    private static final DefaultRedisScript<Long> RECORD_SCRIPT = new DefaultRedisScript<>(
+            "local v = redis.call('incr', KEYS[1]) " +
+            "local i = 4 " +
+            "for k = 1, 3 do " +
+            "  for j = 1, tonumber(ARGV[k]) do redis.call('zadd', KEYS[k + 1], v, ARGV[i]) i = i + 1 end " +
+            "end " +
+            "local floor = v - tonumber(ARGV[i]) " +
+            "if floor > 0 then " +
+            "  for k = 2, 4 do redis.call('zremrangebyscore', KEYS[k], '-inf', floor) end " +
+            "  redis.call('set', KEYS[5], floor) " +
+            "end " +
+            "return v", Long.class);
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    /**
+     * 事务提交后记录变更，先于其他监听器执行，保证重建快照时读到新版本号
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    public void onMenuChange(MenuChangeEvent event) {
+        Set<Long> itemIds = event.getItemIds();
+        List<Long> dishIds = event.getType() == MenuChangeEvent.Type.DISH ? new ArrayList<>(itemIds) : List.of();
+        List<Long> setmealIds = event.getType() == MenuChangeEvent.Type.SETMEAL ? new ArrayList<>(itemIds) : List.of();
+        List<Long> categoryIds = event.getType() == MenuChangeEvent.Type.CATEGORY
+                ? new ArrayList<>(event.getCategoryIds()) : List.of();
+
+        List<String> args = new ArrayList<>();
+        args.add(String.valueOf(dishIds.size()));
+        args.add(String.valueOf(setmealIds.size()));
+        args.add(String.valueOf(categoryIds.size()));
+        addAll(args, dishIds);
+        addAll(args, setmealIds);
+        addAll(args, categoryIds);
+        args.add(String.valueOf(RETAINED_VERSIONS));
+
+        Long version = stringRedisTemplate.execute(RECORD_SCRIPT,
+                Arrays.asList(VERSION_KEY, DISH_CHANGES_KEY, SETMEAL_CHANGES_KEY, CATEGORY_CHANGES_KEY, FLOOR_KEY),
+                args.toArray());
+        log.info("菜单版本更新为:{}", version);
+    }
+
+    /**
+     * 当前菜单版本号
+     */
+    public long currentVersion() {
+        String value = stringRedisTemplate.opsForValue().get(VERSION_KEY);
+        return value == null ? 0 : Long.parseLong(value);
+    }
+
+    /**
+     * 查询指定版本之后的变更
+     * @param since 客户端持有的版本号
+     * @param version 当前版本号，需在查询变更之前读取
+     * @return 版本号无效或变更记录已被清理时返回null，客户端需要重新拉取快照
+     */
+    public Changes changesSince(long since, long version) {
+        String floorValue = stringRedisTemplate.opsForValue().get(FLOOR_KEY);
+        long floor = floorValue == null ? 0 : Long.parseLong(floorValue);
+        if (since < floor || since > version) {
+            return null;
+        }
+        return new Changes(
+                rangeAfter(DISH_CHANGES_KEY, since),
+                rangeAfter(SETMEAL_CHANGES_KEY, since),
+                rangeAfter(CATEGORY_CHANGES_KEY, since));
+    }
+
+    private List<Long> rangeAfter(String key, long since) {
+        Set<String> members = stringRedisTemplate.opsForZSet().rangeByScore(key, since + 1, Double.POSITIVE_INFINITY);
+        List<Long> ids = new ArrayList<>();
+        if (members != null) {
+            members.forEach(member -> ids.add(Long.valueOf(member)));
+        }
+        return ids;
+    }
+
+    private static void addAll(List<String> args, Collection<Long> ids) {
+        ids.forEach(id -> args.add(String.valueOf(id)));
+    }
+
+    /**
+     * 变更的菜品、套餐、分类id
+     */
+    @Getter
+    @AllArgsConstructor
+    public static class Changes {
+        private final List<Long> dishIds;
+        private final List<Long> setmealIds;
+        private final List<Long> categoryIds;
+    }
+}
@@ -0,0 +1,38 @@
+package com.sky.cache;
+
+import lombok.Getter;
+import lombok.ToString;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * 菜品或套餐的基本信息，购物车和下单时使用
+ */
+@Getter
+@ToString
+public class MenuItem {
+
+    private final Long id;
+
+    private final String name;
+
+    private final String image;
+
+    private final BigDecimal price;
+
+    //价格，单位分，计价时使用
+    private final long priceCents;
+
+    //0停售 1起售
+    private final Integer status;
+
+    public MenuItem(Long id, String name, String image, BigDecimal price, Integer status) {
+        this.id = id;
+        this.name = name;
+        this.image = image;
+        this.price = price;
+        this.priceCents = price == null ? 0 : price.movePointRight(2).setScale(0, RoundingMode.HALF_UP).longValue();
+        this.status = status;
+    }
+}
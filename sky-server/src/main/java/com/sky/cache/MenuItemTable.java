@@ -0,0 +1,118 @@
+package com.sky.cache;
+
+import com.sky.entity.Dish;
+import com.sky.entity.Setmeal;
+import com.sky.event.MenuChangeEvent;
+import com.sky.mapper.DishMapper;
+import com.sky.mapper.SetmealMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 进程内的菜品、套餐信息表，购物车展示和下单时直接查表，不再按id查询数据库
+ * 本节点的菜单变更在事务提交后立即重新加载；其他节点的变更通过菜单版本号发现，
+ * 读取时最多每秒检查一次版本号，版本变化后重新加载
+ */
+@Component
+@Slf4j
+public class MenuItemTable {
+
+    private static final long VERSION_CHECK_INTERVAL_MILLIS = 1000;
+
+    @Autowired
+    private DishMapper dishMapper;
+    @Autowired
+    private SetmealMapper setmealMapper;
+    @Autowired
+    private MenuChangeLog menuChangeLog;
+
+    private volatile Snapshot snapshot;
+    private final AtomicLong lastCheckedAt = new AtomicLong();
+
+    /**
+     * 根据id查询菜品
+     * @param dishId
+     * @return 不存在时返回null
+     */
+    public MenuItem getDish(Long dishId) {
+        return current().dishes.get(dishId);
+    }
+
+    /**
+     * 根据id查询套餐
+     * @param setmealId
+     * @return 不存在时返回null
+     */
+    public MenuItem getSetmeal(Long setmealId) {
+        return current().setmeals.get(setmealId);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onMenuChange(MenuChangeEvent event) {
+        try {
+            reload();
+        } catch (Exception e) {
+            //下次读取时按版本号重新加载
+            log.error("重新加载菜品套餐信息失败", e);
+            snapshot = null;
+        }
+    }
+
+    private Snapshot current() {
+        Snapshot current = snapshot;
+        if (current == null) {
+            synchronized (this) {
+                if (snapshot == null) {
+                    reload();
+                }
+                return snapshot;
+            }
+        }
+        long now = System.currentTimeMillis();
+        long last = lastCheckedAt.get();
+        if (now - last > VERSION_CHECK_INTERVAL_MILLIS && lastCheckedAt.compareAndSet(last, now)) {
+            try {
+                if (menuChangeLog.currentVersion() != current.version) {
+                    reload();
+                }
+            } catch (Exception e) {
+                log.warn("检查菜单版本失败，继续使用当前数据", e);
+            }
+        }
+        return snapshot;
+    }
+
+    // 先读版本号再加载数据，加载期间发生的变更会在下次检查时发现
+    private synchronized void reload() {
+        long version = menuChangeLog.currentVersion();
+        Map<Long, MenuItem> dishes = new HashMap<>();
+        for (Dish dish : dishMapper.list(new Dish())) {
+            dishes.put(dish.getId(), new MenuItem(dish.getId(), dish.getName(), dish.getImage(), dish.getPrice(), dish.getStatus()));
+        }
+        Map<Long, MenuItem> setmeals = new HashMap<>();
+        for (Setmeal setmeal : setmealMapper.list(new Setmeal())) {
+            setmeals.put(setmeal.getId(), new MenuItem(setmeal.getId(), setmeal.getName(), setmeal.getImage(), setmeal.getPrice(), setmeal.getStatus()));
+        }
+        snapshot = new Snapshot(version, dishes, setmeals);
+        lastCheckedAt.set(System.currentTimeMillis());
+        log.info("加载菜品套餐信息，版本:{}，菜品{}个，套餐{}个", version, dishes.size(), setmeals.size());
+    }
+
+    private static class Snapshot {
+        private final long version;
+        private final Map<Long, MenuItem> dishes;
+        private final Map<Long, MenuItem> setmeals;
+
+        private Snapshot(long version, Map<Long, MenuItem> dishes, Map<Long, MenuItem> setmeals) {
+            this.version = version;
+            this.dishes = dishes;
+            this.setmeals = setmeals;
+        }
+    }
+}
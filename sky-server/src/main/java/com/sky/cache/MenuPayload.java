@@ -0,0 +1,102 @@
+package com.sky.cache;
+
+import lombok.Getter;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.util.DigestUtils;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * 预先序列化、压缩好的菜单响应，缓存命中后直接写出字节，不再经过Jackson
+ */
+@Getter
+public class MenuPayload implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    //小于该长度的响应不压缩
+    private static final int GZIP_MIN_LENGTH = 256;
+
+    private final byte[] json;
+    //压缩后的内容，压缩无收益时为null
+    private final byte[] gzip;
+    //json内容的md5，用于生成强ETag
+    private final String digest;
+    //数据是否为空，空结果按负缓存处理
+    private final boolean empty;
+
+    MenuPayload(byte[] json, byte[] gzip, String digest, boolean empty) {
+        this.json = json;
+        this.gzip = gzip;
+        this.digest = digest;
+        this.empty = empty;
+    }
+
+    public static MenuPayload of(byte[] json, boolean empty) {
+        return new MenuPayload(json, gzip(json), DigestUtils.md5DigestAsHex(json), empty);
+    }
+
+    /**
+     * 写出响应：客户端已持有相同内容时返回304，支持gzip时直接写出压缩内容
+     * 不同编码的内容使用不同的强ETag
+     */
+    public void writeTo(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        boolean useGzip = gzip != null && acceptsGzip(request);
+        String etag = useGzip ? "\"" + digest + "-gzip\"" : "\"" + digest + "\"";
+
+        response.setHeader(HttpHeaders.ETAG, etag);
+        response.setHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        response.setHeader(HttpHeaders.CACHE_CONTROL, "no-cache");
+        if (notModified(request.getHeader(HttpHeaders.IF_NONE_MATCH))) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+
+        byte[] body = useGzip ? gzip : json;
+        if (useGzip) {
+            response.setHeader(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setCharacterEncoding("UTF-8");
+        response.setContentLength(body.length);
+        response.getOutputStream().write(body);
+    }
+
+    private boolean notModified(String ifNoneMatch) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String tag : ifNoneMatch.split(",")) {
+            String value = tag.trim();
+            if ("*".equals(value) || value.equals("\"" + digest + "\"") || value.equals("\"" + digest + "-gzip\"")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean acceptsGzip(HttpServletRequest request) {
+        String acceptEncoding = request.getHeader(HttpHeaders.ACCEPT_ENCODING);
+        return acceptEncoding != null && acceptEncoding.toLowerCase().contains("gzip");
+    }
+
+    private static byte[] gzip(byte[] json) {
+        if (json.length < GZIP_MIN_LENGTH) {
+            return null;
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream(json.length / 4);
+        try (GZIPOutputStream gzipOut = new GZIPOutputStream(out)) {
+            gzipOut.write(json);
+        } catch (IOException e) {
+            return null;
+        }
+        byte[] compressed = out.toByteArray();
+        return compressed.length < json.length ? compressed : null;
+    }
+}
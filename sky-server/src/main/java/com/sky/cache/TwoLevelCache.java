@@ -0,0 +1,275 @@
+package com.sky.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.sky.properties.MenuCacheProperties;
+import com.sky.result.Result;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.support.AbstractValueAdaptingCache;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 二级缓存：进程内Caffeine近端缓存 + Redis远端缓存
+ * 读取时先查本地，未命中再查Redis并回填本地；
+ * 写入、删除时同步修改Redis，并通过Redis发布订阅通知其他节点清理本地副本
+ *
+ * redis中的key格式为 {缓存名}::{代数}::{key}，清空缓存时只需把代数加1，
+ * 旧代数下的数据不再被访问，随过期时间自然淘汰，不需要KEYS扫描
+ *
+ * 缓存未命中时单飞加载：同一节点同一个key只有一个线程执行加载，其余线程返回旧值或等待加载结果；
+ * 节点之间通过redis租约锁协调，只有抢到锁的节点查询数据库
+ *
+ * 空结果同样缓存，但只写redis并使用较短的过期时间
+ */
+@Slf4j
+public class TwoLevelCache extends AbstractValueAdaptingCache {
+
+    //只释放自己持有的锁
+    private static final DefaultRedisScript<Long> RELEASE_LOCK_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('get', KEYS[1]) == ARGV[1] then return redis.call('del', KEYS[1]) else return 0 end",
+            Long.class);
+
+    private static final long WAIT_INTERVAL_MILLIS = 50;
+
+    private final String name;
+    private final Cache<String, Object> localCache;
+    //失效后保留的旧值，重建期间返回给并发请求
+    private final Cache<String, Object> staleCache;
+    private final RedisTemplate redisTemplate;
+    private final StringRedisTemplate stringRedisTemplate;
+    private final MenuCacheProperties menuCacheProperties;
+    private final TwoLevelCacheManager cacheManager;
+
+    //正在加载中的key
+    private final ConcurrentMap<String, CompletableFuture<Object>> loadingMap = new ConcurrentHashMap<>();
+
+    //本地记录的缓存代数，-1表示需要从redis重新读取
+    private volatile long generation = -1;
+    private volatile long generationLoadedAt;
+
+    public TwoLevelCache(String name, Cache<String, Object> localCache, Cache<String, Object> staleCache,
+                         RedisTemplate redisTemplate, StringRedisTemplate stringRedisTemplate,
+                         MenuCacheProperties menuCacheProperties, TwoLevelCacheManager cacheManager) {
+        super(true);
+        this.name = name;
+        this.localCache = localCache;
+        this.staleCache = staleCache;
+        this.redisTemplate = redisTemplate;
+        this.stringRedisTemplate = stringRedisTemplate;
+        this.menuCacheProperties = menuCacheProperties;
+        this.cacheManager = cacheManager;
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public Object getNativeCache() {
+        return localCache;
+    }
+
+    @Override
+    protected Object lookup(Object key) {
+        String localKey = String.valueOf(key);
+        Object value = localCache.getIfPresent(localKey);
+        if (value != null) {
+            return value;
+        }
+        value = redisTemplate.opsForValue().get(remoteKey(localKey));
+        if (value != null && !isEmptyValue(value)) {
+            localCache.put(localKey, value);
+        }
+        return value;
+    }
+
+    /**
+     * 单飞加载，对应 @Cacheable(sync = true)
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Callable<T> valueLoader) {
+        ValueWrapper wrapper = get(key);
+        if (wrapper != null) {
+            return (T) wrapper.get();
+        }
+
+        String localKey = String.valueOf(key);
+        CompletableFuture<Object> future = new CompletableFuture<>();
+        CompletableFuture<Object> loading = loadingMap.putIfAbsent(localKey, future);
+        if (loading != null) {
+            //其他线程正在加载，有旧值直接返回旧值，否则等待加载结果
+            Object stale = staleCache.getIfPresent(localKey);
+            if (stale != null) {
+                return (T) fromStoreValue(stale);
+            }
+            try {
+                return (T) fromStoreValue(loading.join());
+            } catch (CompletionException ex) {
+                throw new ValueRetrievalException(key, valueLoader, ex.getCause());
+            }
+        }
+
+        try {
+            Object storeValue = loadWithLease(localKey, valueLoader);
+            future.complete(storeValue);
+            return (T) fromStoreValue(storeValue);
+        } catch (Throwable ex) {
+            future.completeExceptionally(ex);
+            throw new ValueRetrievalException(key, valueLoader, ex);
+        } finally {
+            loadingMap.remove(localKey, future);
+        }
+    }
+
+    @Override
+    public void put(Object key, Object value) {
+        String localKey = String.valueOf(key);
+        Object storeValue = toStoreValue(value);
+        if (isEmptyValue(storeValue)) {
+            //空结果只在redis中短暂保存，不进入本地缓存
+            redisTemplate.opsForValue().set(remoteKey(localKey), storeValue,
+                    Duration.ofSeconds(menuCacheProperties.getNegativeTtlSeconds()));
+            localCache.invalidate(localKey);
+        } else {
+            redisTemplate.opsForValue().set(remoteKey(localKey), storeValue,
+                    Duration.ofSeconds(menuCacheProperties.getRemoteTtlSeconds()));
+            localCache.put(localKey, storeValue);
+        }
+        cacheManager.publish(name, localKey);
+    }
+
+    @Override
+    public void evict(Object key) {
+        String localKey = String.valueOf(key);
+        redisTemplate.delete(remoteKey(localKey));
+        invalidateLocal(localKey);
+        cacheManager.publish(name, localKey);
+    }
+
+    /**
+     * 清空缓存：代数加1，O(1)完成
+     */
+    @Override
+    public void clear() {
+        Long next = stringRedisTemplate.opsForValue().increment(generationKey());
+        staleCache.putAll(localCache.asMap());
+        localCache.invalidateAll();
+        generation = next == null ? -1 : next;
+        generationLoadedAt = System.currentTimeMillis();
+        cacheManager.publish(name, null);
+    }
+
+    /**
+     * 清理本地副本，旧值转入staleCache
+     * @param key 为null时清空本地缓存
+     */
+    void invalidateLocal(String key) {
+        if (key == null) {
+            generation = -1;
+            staleCache.putAll(localCache.asMap());
+            localCache.invalidateAll();
+            return;
+        }
+        Object value = localCache.getIfPresent(key);
+        if (value != null) {
+            staleCache.put(key, value);
+        }
+        localCache.invalidate(key);
+    }
+
+    /**
+     * 抢到租约锁的节点负责加载并写入缓存；没抢到的等待其他节点写入，超时后自己加载
+     */
+    private Object loadWithLease(String localKey, Callable<?> valueLoader) throws Exception {
+        String lockKey = lockKey(localKey);
+        String token = UUID.randomUUID().toString();
+        Boolean locked = stringRedisTemplate.opsForValue().setIfAbsent(lockKey, token,
+                menuCacheProperties.getRebuildLeaseMillis(), TimeUnit.MILLISECONDS);
+        if (Boolean.TRUE.equals(locked)) {
+            try {
+                //抢锁期间其他节点可能已经写入
+                Object value = lookup(localKey);
+                if (value != null) {
+                    return value;
+                }
+                return load(localKey, valueLoader);
+            } finally {
+                stringRedisTemplate.execute(RELEASE_LOCK_SCRIPT, Collections.singletonList(lockKey), token);
+            }
+        }
+
+        long deadline = System.currentTimeMillis() + menuCacheProperties.getRebuildWaitMillis();
+        while (System.currentTimeMillis() < deadline) {
+            Object value = lookup(localKey);
+            if (value != null) {
+                return value;
+            }
+            try {
+                Thread.sleep(WAIT_INTERVAL_MILLIS);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        log.warn("等待缓存重建超时，直接加载:{}::{}", name, localKey);
+        return load(localKey, valueLoader);
+    }
+
+    private Object load(String localKey, Callable<?> valueLoader) throws Exception {
+        Object storeValue = toStoreValue(valueLoader.call());
+        put(localKey, storeValue);
+        staleCache.invalidate(localKey);
+        return storeValue;
+    }
+
+    /**
+     * 是否为空结果：null、空集合、data为空的Result、空菜单
+     */
+    private boolean isEmptyValue(Object storeValue) {
+        if (storeValue instanceof MenuPayload payload) {
+            return payload.isEmpty();
+        }
+        Object value = storeValue instanceof Result<?> result ? result.getData() : fromStoreValue(storeValue);
+        return value == null || (value instanceof Collection<?> collection && collection.isEmpty());
+    }
+
+    private String remoteKey(String key) {
+        return name + "::" + generation() + "::" + key;
+    }
+
+    private String generationKey() {
+        return name + "::generation";
+    }
+
+    private String lockKey(String key) {
+        return name + "::lock::" + key;
+    }
+
+    /**
+     * 获取当前缓存代数，本地记录超过刷新间隔后重新从redis读取，防止丢失广播消息后一直使用旧代数
+     */
+    private long generation() {
+        long now = System.currentTimeMillis();
+        long refreshMillis = TimeUnit.SECONDS.toMillis(menuCacheProperties.getLocalTtlSeconds());
+        if (generation < 0 || now - generationLoadedAt > refreshMillis) {
+            String value = stringRedisTemplate.opsForValue().get(generationKey());
+            generation = value == null ? 0 : Long.parseLong(value);
+            generationLoadedAt = now;
+        }
+        return generation;
+    }
+}
@@ -0,0 +1,88 @@
+package com.sky.cache;
+
+import com.alibaba.fastjson.JSON;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.sky.properties.MenuCacheProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 二级缓存管理器，负责创建TwoLevelCache以及收发跨节点的缓存失效消息
+ */
+@Slf4j
+public class TwoLevelCacheManager implements CacheManager {
+
+    private final ConcurrentMap<String, TwoLevelCache> cacheMap = new ConcurrentHashMap<>();
+
+    //当前节点标识，用于忽略自己发出的失效消息
+    private final String nodeId = UUID.randomUUID().toString();
+
+    private final RedisTemplate redisTemplate;
+    private final StringRedisTemplate stringRedisTemplate;
+    private final MenuCacheProperties menuCacheProperties;
+
+    public TwoLevelCacheManager(RedisTemplate redisTemplate, StringRedisTemplate stringRedisTemplate,
+                                MenuCacheProperties menuCacheProperties) {
+        this.redisTemplate = redisTemplate;
+        this.stringRedisTemplate = stringRedisTemplate;
+        this.menuCacheProperties = menuCacheProperties;
+    }
+
+    @Override
+    public Cache getCache(String name) {
+        return cacheMap.computeIfAbsent(name, this::createCache);
+    }
+
+    @Override
+    public Collection<String> getCacheNames() {
+        return Collections.unmodifiableSet(cacheMap.keySet());
+    }
+
+    /**
+     * 广播缓存失效消息
+     * @param cacheName
+     * @param key 为null时表示清空整个缓存
+     */
+    void publish(String cacheName, String key) {
+        CacheMessage message = new CacheMessage(nodeId, cacheName, key);
+        stringRedisTemplate.convertAndSend(menuCacheProperties.getInvalidationChannel(), JSON.toJSONString(message));
+    }
+
+    /**
+     * 处理其他节点发来的失效消息
+     * @param message
+     */
+    void onMessage(CacheMessage message) {
+        if (nodeId.equals(message.getNodeId())) {
+            return;
+        }
+        TwoLevelCache cache = cacheMap.get(message.getCacheName());
+        if (cache != null) {
+            log.debug("清理本地缓存:{}::{}", message.getCacheName(), message.getKey());
+            cache.invalidateLocal(message.getKey());
+        }
+    }
+
+    private TwoLevelCache createCache(String name) {
+        com.github.benmanes.caffeine.cache.Cache<String, Object> localCache = Caffeine.newBuilder()
+                .maximumSize(menuCacheProperties.getLocalMaximumSize())
+                .expireAfterWrite(menuCacheProperties.getLocalTtlSeconds(), TimeUnit.SECONDS)
+                .build();
+        com.github.benmanes.caffeine.cache.Cache<String, Object> staleCache = Caffeine.newBuilder()
+                .maximumSize(menuCacheProperties.getLocalMaximumSize())
+                .expireAfterWrite(menuCacheProperties.getStaleTtlSeconds(), TimeUnit.SECONDS)
+                .build();
+        return new TwoLevelCache(name, localCache, staleCache, redisTemplate, stringRedisTemplate,
+                menuCacheProperties, this);
+    }
+}
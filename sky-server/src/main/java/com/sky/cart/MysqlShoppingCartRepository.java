@@ -0,0 +1,117 @@
+package com.sky.cart;
+
+import com.sky.cache.MenuItem;
+import com.sky.cache.MenuItemTable;
+import com.sky.constant.MessageConstant;
+import com.sky.entity.ShoppingCart;
+import com.sky.exception.ShoppingCartBusinessException;
+import com.sky.mapper.ShoppingCartMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 购物车存储在shopping_cart表中
+ */
+@Component
+@Slf4j
+@ConditionalOnProperty(prefix = "sky.shopping-cart", name = "store", havingValue = "mysql")
+public class MysqlShoppingCartRepository implements ShoppingCartRepository {
+
+    @Autowired
+    private ShoppingCartMapper shoppingCartMapper;
+    @Autowired
+    private MenuItemTable menuItemTable;
+
+    /**
+     * 名称、图片、金额使用MenuItemTable中的当前信息，与redis实现一致；已删除的商品不再展示
+     */
+    @Override
+    public List<ShoppingCart> list(Long userId) {
+        List<ShoppingCart> list = new ArrayList<>();
+        for (ShoppingCart cart : shoppingCartMapper.list(ShoppingCart.builder().userId(userId).build())) {
+            MenuItem item = cart.getDishId() != null
+                    ? menuItemTable.getDish(cart.getDishId())
+                    : menuItemTable.getSetmeal(cart.getSetmealId());
+            if (item == null) {
+                log.info("购物车中的商品已不存在，用户id:{}，购物车id:{}", userId, cart.getId());
+                continue;
+            }
+            cart.setName(item.getName());
+            cart.setImage(item.getImage());
+            cart.setAmount(item.getPrice());
+            list.add(cart);
+        }
+        return list;
+    }
+
+    @Override
+    public void change(Long userId, ShoppingCart item, int delta) {
+        ShoppingCart condition = ShoppingCart.builder()
+                .userId(userId)
+                .dishId(item.getDishId())
+                .setmealId(item.getSetmealId())
+                .dishFlavor(item.getDishFlavor())
+                .build();
+        List<ShoppingCart> list = shoppingCartMapper.list(condition);
+        if (list != null && !list.isEmpty()) {
+            ShoppingCart cart = list.get(0);
+            int number = cart.getNumber() + delta;
+            if (delta > 0 && number > MAX_NUMBER) {
+                throw new ShoppingCartBusinessException(MessageConstant.CART_NUMBER_EXCEEDED);
+            }
+            if (number > 0) {
+                cart.setNumber(number);
+                shoppingCartMapper.updateNumberById(cart);
+            } else {
+                shoppingCartMapper.deleteById(cart);
+            }
+        } else if (delta > 0) {
+            if (delta > MAX_NUMBER) {
+                throw new ShoppingCartBusinessException(MessageConstant.CART_NUMBER_EXCEEDED);
+            }
+            ShoppingCart cart = ShoppingCart.builder()
+                    .userId(userId)
+                    .dishId(item.getDishId())
+                    .setmealId(item.getSetmealId())
+                    .dishFlavor(item.getDishFlavor())
+                    .name(item.getName())
+                    .image(item.getImage())
+                    .amount(item.getAmount())
+                    .number(delta)
+                    .createTime(LocalDateTime.now())
+                    .build();
+            shoppingCartMapper.insert(cart);
+        }
+    }
+
+    @Override
+    @Transactional
+    public void changeAll(Long userId, List<ShoppingCart> items) {
+        for (ShoppingCart item : items) {
+            change(userId, item, item.getNumber());
+        }
+    }
+
+    /**
+     * 与已有的同一商品合并数量，与redis实现一致
+     */
+    @Override
+    @Transactional
+    public void addAll(Long userId, List<ShoppingCart> items) {
+        for (ShoppingCart item : items) {
+            change(userId, item, item.getNumber());
+        }
+    }
+
+    @Override
+    public void clear(Long userId) {
+        shoppingCartMapper.deleteByUserId(userId);
+    }
+}
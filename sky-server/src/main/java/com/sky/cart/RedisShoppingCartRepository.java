@@ -0,0 +1,151 @@
+package com.sky.cart;
+
+import com.sky.cache.MenuItem;
+import com.sky.cache.MenuItemTable;
+import com.sky.constant.MessageConstant;
+import com.sky.entity.ShoppingCart;
+import com.sky.exception.ShoppingCartBusinessException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 购物车存储在redis中，加减商品不再读写数据库
+ * cart:{用户id} 为hash，field为 d:{菜品id}:{口味} 或 s:{套餐id}，value为数量
+ * 只保存数量，名称、图片、金额在查询时从MenuItemTable读取，已删除的商品不再展示
+ * 购物车在最后一次修改后保留7天
+ */
+@Component
+@Slf4j
+@ConditionalOnProperty(prefix = "sky.shopping-cart", name = "store", havingValue = "redis", matchIfMissing = true)
+public class RedisShoppingCartRepository implements ShoppingCartRepository {
+
+    private static final String KEY_PREFIX = "cart:";
+    private static final String DISH_PREFIX = "d:";
+    private static final String SETMEAL_PREFIX = "s:";
+    private static final long TTL_SECONDS = TimeUnit.DAYS.toSeconds(7);
+
+    //KEYS: 购物车  ARGV: 过期时间(秒)、单个商品最大数量、field、数量变化、field、数量变化...
+    //先按顺序算出每个field的最终数量，有增加后超过上限的返回0且不做修改；否则写入，数量减到0及以下时删除该field
+    private static final DefaultRedisScript<Long> CHANGE_SCRIPT = new DefaultRedisScript<>(
+            "local max = tonumber(ARGV[2]) " +
+            "local numbers = {} " +
+            "for i = 3, #ARGV, 2 do " +
+            "  local n = numbers[ARGV[i]] " +
+            "  if n == nil then n = tonumber(redis.call('hget', KEYS[1], ARGV[i]) or '0') end " +
+            "  local delta = tonumber(ARGV[i + 1]) " +
+            "  n = math.max(n + delta, 0) " +
+            "  if delta > 0 and n > max then return 0 end " +
+            "  numbers[ARGV[i]] = n " +
+            "end " +
+            "for field, n in pairs(numbers) do " +
+            "  if n > 0 then redis.call('hset', KEYS[1], field, n) else redis.call('hdel', KEYS[1], field) end " +
+            "end " +
+            "if redis.call('exists', KEYS[1]) == 1 then redis.call('expire', KEYS[1], ARGV[1]) end " +
+            "return 1", Long.class);
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+    @Autowired
+    private MenuItemTable menuItemTable;
+
+    @Override
+    public List<ShoppingCart> list(Long userId) {
+        Map<Object, Object> entries = stringRedisTemplate.opsForHash().entries(key(userId));
+        List<ShoppingCart> list = new ArrayList<>();
+        for (Map.Entry<Object, Object> entry : entries.entrySet()) {
+            ShoppingCart cart = toCart(userId, entry.getKey().toString(), Integer.parseInt(entry.getValue().toString()));
+            if (cart != null) {
+                list.add(cart);
+            }
+        }
+        //hash没有顺序，按菜品、套餐和id排序保证每次展示一致
+        list.sort(Comparator.comparing((ShoppingCart cart) -> cart.getDishId() == null)
+                .thenComparing(cart -> cart.getDishId() != null ? cart.getDishId() : cart.getSetmealId())
+                .thenComparing(cart -> cart.getDishFlavor() == null ? "" : cart.getDishFlavor()));
+        return list;
+    }
+
+    @Override
+    public void change(Long userId, ShoppingCart item, int delta) {
+        execute(userId, String.valueOf(TTL_SECONDS), String.valueOf(MAX_NUMBER), field(item), String.valueOf(delta));
+    }
+
+    /**
+     * 一次脚本调用完成全部修改，redis单线程执行脚本，中间状态对其他请求不可见
+     */
+    @Override
+    public void changeAll(Long userId, List<ShoppingCart> items) {
+        if (items.isEmpty()) {
+            return;
+        }
+        List<String> args = new ArrayList<>();
+        args.add(String.valueOf(TTL_SECONDS));
+        args.add(String.valueOf(MAX_NUMBER));
+        for (ShoppingCart item : items) {
+            args.add(field(item));
+            args.add(String.valueOf(item.getNumber()));
+        }
+        execute(userId, args.toArray());
+    }
+
+    @Override
+    public void addAll(Long userId, List<ShoppingCart> items) {
+        changeAll(userId, items);
+    }
+
+    @Override
+    public void clear(Long userId) {
+        stringRedisTemplate.delete(key(userId));
+    }
+
+    private void execute(Long userId, Object... args) {
+        Long result = stringRedisTemplate.execute(CHANGE_SCRIPT, List.of(key(userId)), args);
+        if (result == null || result == 0) {
+            throw new ShoppingCartBusinessException(MessageConstant.CART_NUMBER_EXCEEDED);
+        }
+    }
+
+    private ShoppingCart toCart(Long userId, String field, int number) {
+        ShoppingCart cart = ShoppingCart.builder().userId(userId).number(number).build();
+        MenuItem item;
+        if (field.startsWith(DISH_PREFIX)) {
+            //口味中可能包含冒号，只拆分前两段
+            String[] parts = field.split(":", 3);
+            cart.setDishId(Long.valueOf(parts[1]));
+            cart.setDishFlavor(parts.length < 3 || parts[2].isEmpty() ? null : parts[2]);
+            item = menuItemTable.getDish(cart.getDishId());
+        } else {
+            cart.setSetmealId(Long.valueOf(field.substring(SETMEAL_PREFIX.length())));
+            item = menuItemTable.getSetmeal(cart.getSetmealId());
+        }
+        if (item == null) {
+            log.info("购物车中的商品已不存在，用户id:{}，商品:{}", userId, field);
+            return null;
+        }
+        cart.setName(item.getName());
+        cart.setImage(item.getImage());
+        cart.setAmount(item.getPrice());
+        return cart;
+    }
+
+    private String field(ShoppingCart item) {
+        if (item.getDishId() != null) {
+            return DISH_PREFIX + item.getDishId() + ":" + (item.getDishFlavor() == null ? "" : item.getDishFlavor());
+        }
+        return SETMEAL_PREFIX + item.getSetmealId();
+    }
+
+    private String key(Long userId) {
+        return KEY_PREFIX + userId;
+    }
+}
@@ -0,0 +1,53 @@
+package com.sky.cart;
+
+import com.sky.entity.ShoppingCart;
+
+import java.util.List;
+
+/**
+ * 购物车存储
+ * 通过 sky.shopping-cart.store 选择实现：redis(默认) 或 mysql
+ */
+public interface ShoppingCartRepository {
+
+    //购物车中单个商品的最大数量
+    int MAX_NUMBER = 99;
+
+    /**
+     * 查询用户的购物车
+     * @param userId
+     * @return 商品名称、图片、金额为当前菜品、套餐的信息
+     */
+    List<ShoppingCart> list(Long userId);
+
+    /**
+     * 修改购物车中某个商品的数量，数量减到0时移除该商品
+     * 增加后超过MAX_NUMBER时抛出ShoppingCartBusinessException，不做修改
+     * @param userId
+     * @param item 菜品id、口味或套餐id，以及商品名称、图片、金额
+     * @param delta 数量变化
+     */
+    void change(Long userId, ShoppingCart item, int delta);
+
+    /**
+     * 按顺序执行多个数量修改，全部成功或全部不生效
+     * 任一商品增加后超过MAX_NUMBER时抛出ShoppingCartBusinessException，整批不生效
+     * @param userId
+     * @param items number为数量变化，需要新增的商品带上名称、图片、金额
+     */
+    void changeAll(Long userId, List<ShoppingCart> items);
+
+    /**
+     * 批量加入购物车，已有的商品累加数量
+     * @param userId
+     * 任一商品累加后超过MAX_NUMBER时抛出ShoppingCartBusinessException，整批不生效
+     * @param items 按number累加
+     */
+    void addAll(Long userId, List<ShoppingCart> items);
+
+    /**
+     * 清空购物车
+     * @param userId
+     */
+    void clear(Long userId);
+}
@@ -0,0 +1,45 @@
+package com.sky.config;
+
+import com.sky.cache.CacheInvalidationListener;
+import com.sky.cache.CategoryBloomFilter;
+import com.sky.cache.TwoLevelCacheManager;
+import com.sky.properties.MenuCacheProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+
+/**
+ * 缓存配置类，注册二级缓存管理器以及缓存失效消息的监听容器
+ */
+@Configuration
+@Slf4j
+public class CacheConfiguration {
+
+    @Bean
+    public TwoLevelCacheManager cacheManager(RedisTemplate redisTemplate,
+                                             StringRedisTemplate stringRedisTemplate,
+                                             MenuCacheProperties menuCacheProperties) {
+        log.info("开始创建二级缓存管理器...");
+        return new TwoLevelCacheManager(redisTemplate, stringRedisTemplate, menuCacheProperties);
+    }
+
+    @Bean
+    public RedisMessageListenerContainer redisMessageListenerContainer(RedisConnectionFactory redisConnectionFactory,
+                                                                       TwoLevelCacheManager cacheManager,
+                                                                       CategoryBloomFilter categoryBloomFilter,
+                                                                       MenuCacheProperties menuCacheProperties) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(redisConnectionFactory);
+        //订阅缓存失效频道
+        container.addMessageListener(new CacheInvalidationListener(cacheManager),
+                new ChannelTopic(menuCacheProperties.getInvalidationChannel()));
+        //订阅分类变更频道，重建布隆过滤器
+        container.addMessageListener(categoryBloomFilter, new ChannelTopic(menuCacheProperties.getCategoryChannel()));
+        return container;
+    }
+}
@@ -0,0 +1,50 @@
+package com.sky.config;
+
+import com.sky.context.BaseContext;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.ThreadPoolExecutor;
+
+/**
+ * 线程池配置类
+ */
+@Configuration
+@Slf4j
+public class ExecutorConfiguration {
+
+    /**
+     * 工作台并发查询使用的线程池，有界队列，队列满时由调用线程执行
+     * 提交任务时把当前线程的BaseContext传递给工作线程
+     */
+    @Bean
+    public ThreadPoolTaskExecutor workspaceExecutor() {
+        log.info("开始创建工作台查询线程池...");
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(4);
+        executor.setMaxPoolSize(8);
+        executor.setQueueCapacity(100);
+        executor.setThreadNamePrefix("workspace-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.setTaskDecorator(runnable -> {
+            Long currentId = BaseContext.getCurrentId();
+            return () -> {
+                Long previousId = BaseContext.getCurrentId();
+                BaseContext.setCurrentId(currentId);
+                try {
+                    runnable.run();
+                } finally {
+                    //调用线程执行时还原原来的值，工作线程执行时清除
+                    if (previousId == null) {
+                        BaseContext.removeCurrentId();
+                    } else {
+                        BaseContext.setCurrentId(previousId);
+                    }
+                }
+            };
+        });
+        return executor;
+    }
+}
@@ -1,5 +1,6 @@
 package com.sky.config;
 
+import com.sky.cache.CompactRedisSerializer;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -19,6 +20,8 @@ public class RedisConfiguration {
         redisTemplate.setConnectionFactory(redisConnectionFactory);
         //设置redis key的序列化器
         redisTemplate.setKeySerializer(new StringRedisSerializer());
+        //设置redis value的序列化器，兼容读取原有的JDK序列化数据
+        redisTemplate.setValueSerializer(new CompactRedisSerializer());
         return redisTemplate;
     }
 }
@@ -22,13 +22,16 @@ public class OrderController {
     private OrderService orderService;
 
     /**
-     * 订单搜索
+     * 订单搜索，传入cursor时使用游标分页
      * @param ordersPageQueryDTO
      * @return
      */
     @GetMapping("/conditionSearch")
     public Result<PageResult> page(OrdersPageQueryDTO ordersPageQueryDTO){
         log.info("分页查询订单:{}",ordersPageQueryDTO);
+        if (ordersPageQueryDTO.getCursor() != null) {
+            return Result.success(orderService.pageQueryByCursor(ordersPageQueryDTO));
+        }
         PageResult pageResult = orderService.pageQuery(ordersPageQueryDTO);
         return Result.success(pageResult);
     }
@@ -11,6 +11,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 import javax.servlet.http.HttpServletResponse;
@@ -79,19 +80,31 @@ public class ReportController {
      *
      * @param begin
      * @param end
+     * @param exact 是否精确统计，默认合并每日摘要
      * @return
      */
     @GetMapping("/top10")
     public Result<SalesTop10ReportVO> top10(
             @DateTimeFormat(pattern = "yyyy-MM-dd") LocalDate begin,
-            @DateTimeFormat(pattern = "yyyy-MM-dd") LocalDate end) {
-        log.info("查询top10:{},{}", begin, end);
-        SalesTop10ReportVO salesTop10ReportVO = orderService.getSalesTop10(begin, end);
+            @DateTimeFormat(pattern = "yyyy-MM-dd") LocalDate end,
+            @RequestParam(defaultValue = "false") boolean exact) {
+        log.info("查询top10:{},{},精确统计:{}", begin, end, exact);
+        SalesTop10ReportVO salesTop10ReportVO = orderService.getSalesTop10(begin, end, exact);
         return Result.success(salesTop10ReportVO);
     }
 
+    /**
+     * 导出运营数据报表，默认导出最近30天
+     *
+     * @param response
+     * @param begin
+     * @param end
+     */
     @GetMapping("/export")
-    public void export(HttpServletResponse response) {
-        orderService.export(response);
+    public void export(HttpServletResponse response,
+                       @DateTimeFormat(pattern = "yyyy-MM-dd") LocalDate begin,
+                       @DateTimeFormat(pattern = "yyyy-MM-dd") LocalDate end) {
+        log.info("导出运营数据报表:{},{}", begin, end);
+        orderService.export(response, begin, end);
     }
 }
@@ -1,22 +1,20 @@
 package com.sky.controller.user;
 
-import com.sky.constant.StatusConstant;
-import com.sky.entity.Dish;
-import com.sky.result.Result;
-import com.sky.service.DishService;
+import com.sky.cache.CategoryBloomFilter;
+import com.sky.constant.MessageConstant;
+import com.sky.service.MenuService;
 import com.sky.vo.DishVO;
 import io.swagger.annotations.Api;
 import io.swagger.annotations.ApiOperation;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.beans.factory.annotation.Qualifier;
-import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
-import java.util.List;
-import java.util.Objects;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
 
 @RestController("userDishController")
 @RequestMapping("/user/dish")
@@ -24,38 +22,29 @@ import java.util.Objects;
 @Api(tags = "C端-菜品浏览接口")
 public class DishController {
     @Autowired
-    private DishService dishService;
-    @Qualifier("redisTemplate")
+    private MenuService menuService;
     @Autowired
-    private RedisTemplate redisTemplate;
+    private CategoryBloomFilter categoryBloomFilter;
 
     /**
      * 根据分类id查询菜品
+     * 缓存中保存序列化好的json，命中后直接写出，支持ETag/304和gzip
+     * 不经过消息转换器，响应体为{@code Result<List<DishVO>>} 的json；分类不存在时同样直接写出Result.error
      *
      * @param categoryId
-     * @return
+     * @param request
+     * @param response
      */
     @GetMapping("/list")
-    @ApiOperation("根据分类id查询菜品")
-    public Result<List<DishVO>> list(Long categoryId) {
-        // 构造redis中的key，规则：dish_分类id
-        String key = "dish_" + categoryId;
-        // 查询redis中是否存在菜品数据
-        List<DishVO> list = (List<DishVO>) redisTemplate.opsForValue().get(key);
-        // 如果存在直接返回，无需查询数据库
-        if (list != null && !list.isEmpty()) {
-            return Result.success(list);
+    @ApiOperation(value = "根据分类id查询菜品", notes = "直接写出json，格式为Result<List<DishVO>>",
+            response = DishVO.class, responseContainer = "List")
+    public void list(Long categoryId, HttpServletRequest request, HttpServletResponse response) throws IOException {
+        if (!categoryBloomFilter.mightContain(categoryId)) {
+            menuService.getErrorPayload(MessageConstant.CATEGORY_NOT_FOUND).writeTo(request, response);
+            return;
         }
 
-        Dish dish = new Dish();
-        dish.setCategoryId(categoryId);
-        dish.setStatus(StatusConstant.ENABLE);//查询起售中的菜品
-
-        // 如果不存在，查询数据库，将查询的数据放入redis中
-        list = dishService.listWithFlavor(dish);
-        redisTemplate.opsForValue().set(key,list);
-
-        return Result.success(list);
+        menuService.getDishPayload(categoryId).writeTo(request, response);//key: dishCache::100，先查本地缓存，再查redis
     }
 
 }
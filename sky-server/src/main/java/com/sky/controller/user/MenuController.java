@@ -0,0 +1,54 @@
+package com.sky.controller.user;
+
+import com.sky.cache.MenuChangeLog;
+import com.sky.result.Result;
+import com.sky.service.MenuService;
+import com.sky.vo.MenuChangesVO;
+import io.swagger.annotations.Api;
+import io.swagger.annotations.ApiOperation;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+@RestController
+@RequestMapping("/user/menu")
+@Slf4j
+@Api(tags = "C端-菜单接口")
+public class MenuController {
+
+    @Autowired
+    private MenuService menuService;
+    @Autowired
+    private MenuChangeLog menuChangeLog;
+
+    /**
+     * 整份菜单快照，一次返回所有起售中的分类、菜品和套餐，支持ETag/304和gzip
+     * @param request
+     * @param response
+     */
+    @GetMapping("/snapshot")
+    @ApiOperation("菜单快照")
+    public void snapshot(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        long version = menuChangeLog.currentVersion();
+        menuService.getSnapshotPayload(version).writeTo(request, response);
+    }
+
+    /**
+     * 查询指定版本之后变更的菜品和套餐
+     * @param since 客户端持有的菜单版本号
+     * @return
+     */
+    @GetMapping("/changes")
+    @ApiOperation("菜单增量变更")
+    public Result<MenuChangesVO> changes(Long since) {
+        log.info("查询菜单增量变更:{}", since);
+        MenuChangesVO changes = menuService.getChanges(since == null ? -1 : since);
+        return Result.success(changes);
+    }
+}
@@ -54,10 +54,16 @@ public class OrderController {
      * @param page
      * @param pageSize
      * @param status
+     * @param cursor 传入时使用游标分页，第一页传空字符串，之后传上一页返回的nextCursor
+     * @param withTotal 游标分页时是否返回总数
      * @return
      */
     @GetMapping("/historyOrders")
-    public Result<PageResult> getHistoryOrders(Integer page, Integer pageSize, Integer status) {
+    public Result<PageResult> getHistoryOrders(Integer page, Integer pageSize, Integer status,
+                                               String cursor, Boolean withTotal) {
+        if (cursor != null) {
+            return Result.success(orderService.getHistoryOrdersByCursor(pageSize, status, cursor, withTotal));
+        }
         PageResult pageResult = orderService.getHistoryOrders(page, pageSize, status);
         return Result.success(pageResult);
     }
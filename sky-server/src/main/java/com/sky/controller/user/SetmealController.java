@@ -1,18 +1,23 @@
 package com.sky.controller.user;
 
-import com.sky.constant.StatusConstant;
+import com.sky.cache.CategoryBloomFilter;
+import com.sky.constant.MessageConstant;
 import com.sky.entity.Setmeal;
 import com.sky.result.Result;
+import com.sky.service.MenuService;
 import com.sky.service.SetmealService;
 import com.sky.vo.DishItemVO;
 import io.swagger.annotations.Api;
 import io.swagger.annotations.ApiOperation;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.cache.annotation.Cacheable;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
 import java.util.List;
 
 @RestController("userSetmealController")
@@ -21,23 +26,30 @@ import java.util.List;
 public class SetmealController {
     @Autowired
     private SetmealService setmealService;
+    @Autowired
+    private MenuService menuService;
+    @Autowired
+    private CategoryBloomFilter categoryBloomFilter;
 
     /**
      * 条件查询
+     * 缓存中保存序列化好的json，命中后直接写出，支持ETag/304和gzip
+     * 不经过消息转换器，响应体为{@code Result<List<Setmeal>>} 的json；分类不存在时同样直接写出Result.error
      *
      * @param categoryId
-     * @return
+     * @param request
+     * @param response
      */
     @GetMapping("/list")
-    @ApiOperation("根据分类id查询套餐")
-    @Cacheable(cacheNames = "setmealCache",key = "#categoryId") //key: setmealCache::100
-    public Result<List<Setmeal>> list(Long categoryId) {
-        Setmeal setmeal = new Setmeal();
-        setmeal.setCategoryId(categoryId);
-        setmeal.setStatus(StatusConstant.ENABLE);
+    @ApiOperation(value = "根据分类id查询套餐", notes = "直接写出json，格式为Result<List<Setmeal>>",
+            response = Setmeal.class, responseContainer = "List")
+    public void list(Long categoryId, HttpServletRequest request, HttpServletResponse response) throws IOException {
+        if (!categoryBloomFilter.mightContain(categoryId)) {
+            menuService.getErrorPayload(MessageConstant.CATEGORY_NOT_FOUND).writeTo(request, response);
+            return;
+        }
 
-        List<Setmeal> list = setmealService.list(setmeal);
-        return Result.success(list);
+        menuService.getSetmealPayload(categoryId).writeTo(request, response);//key: setmealCache::100
     }
 
     /**
@@ -1,5 +1,6 @@
 package com.sky.controller.user;
 
+import com.sky.dto.ShoppingCartBatchDTO;
 import com.sky.dto.ShoppingCartDTO;
 import com.sky.entity.ShoppingCart;
 import com.sky.result.Result;
@@ -54,4 +55,15 @@ public class ShoppingCartController {
         shoppingCartService.subShoppingCart(shoppingCartDTO);
         return Result.success();
     }
+
+    /**
+     * 批量修改购物车，客户端合并多次点击后一次提交
+     * @param shoppingCartBatchDTO
+     * @return 修改后的购物车
+     */
+    @PostMapping("/batch")
+    public Result<List<ShoppingCart>> batch(@RequestBody ShoppingCartBatchDTO shoppingCartBatchDTO){
+        List<ShoppingCart> list = shoppingCartService.batchShoppingCart(shoppingCartBatchDTO);
+        return Result.success(list);
+    }
 }
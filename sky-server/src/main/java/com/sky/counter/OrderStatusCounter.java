@@ -0,0 +1,152 @@
+package com.sky.counter;
+
+import com.sky.dto.OrderStatusCountDTO;
+import com.sky.entity.Orders;
+import com.sky.event.OrderStatusChangeEvent;
+import com.sky.mapper.OrderMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 订单状态计数器
+ * order:count:status       全部订单按状态计数，field为状态
+ * order:count:day:{日期}    当天下单的订单按状态计数，field为状态，all为当天订单总数
+ * 每次状态流转后原子地把旧状态减1、新状态加1；计数器只在初始化之后维护，由定时对账任务按数据库纠正
+ */
+@Component
+@Slf4j
+public class OrderStatusCounter {
+
+    public static final String ALL = "all";
+
+    private static final String STATUS_KEY = "order:count:status";
+    private static final String DAY_KEY_PREFIX = "order:count:day:";
+    private static final long DAY_KEY_TTL_SECONDS = TimeUnit.DAYS.toSeconds(3);
+
+    private static final Integer[] STATUSES = {Orders.PENDING_PAYMENT, Orders.TO_BE_CONFIRMED, Orders.CONFIRMED,
+            Orders.DELIVERY_IN_PROGRESS, Orders.COMPLETED, Orders.CANCELLED};
+
+    //KEYS: 状态计数、按天计数  ARGV: 旧状态(新下单为空字符串)、新状态
+    private static final DefaultRedisScript<Long> TRANSITION_SCRIPT = new DefaultRedisScript<>(
+            "for k = 1, 2 do " +
+            "  if redis.call('exists', KEYS[k]) == 1 then " +
+            "    if ARGV[1] ~= '' then redis.call('hincrby', KEYS[k], ARGV[1], -1) " +
+            "    elseif k == 2 then redis.call('hincrby', KEYS[k], 'all', 1) end " +
+            "    redis.call('hincrby', KEYS[k], ARGV[2], 1) " +
+            "  end " +
+            "end " +
+            "return 1", Long.class);
+
+    //KEYS: 计数器  ARGV: 过期时间(秒，0为不过期)、field、value、field、value...
+    private static final DefaultRedisScript<Long> RESET_SCRIPT = new DefaultRedisScript<>(
+            "redis.call('del', KEYS[1]) " +
+            "for i = 2, #ARGV, 2 do redis.call('hset', KEYS[1], ARGV[i], ARGV[i + 1]) end " +
+            "if tonumber(ARGV[1]) > 0 then redis.call('expire', KEYS[1], ARGV[1]) end " +
+            "return 1", Long.class);
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+    @Autowired
+    private OrderMapper orderMapper;
+
+    /**
+     * 订单状态变更，事务提交后更新计数器
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onStatusChange(OrderStatusChangeEvent event) {
+        try {
+            if (event.getToStatus() == null || event.getToStatus().equals(event.getFromStatus())) {
+                return;
+            }
+            LocalDate day = event.getOrderTime() == null ? LocalDate.now() : event.getOrderTime().toLocalDate();
+            stringRedisTemplate.execute(TRANSITION_SCRIPT, Arrays.asList(STATUS_KEY, dayKey(day)),
+                    event.getFromStatus() == null ? "" : String.valueOf(event.getFromStatus()),
+                    String.valueOf(event.getToStatus()));
+        } catch (Exception e) {
+            //计数偏差由对账任务纠正
+            log.error("更新订单计数失败:{}", event, e);
+        }
+    }
+
+    /**
+     * 全部订单按状态计数
+     * @param statuses
+     * @return 与参数顺序一致的数量
+     */
+    public List<Integer> countByStatus(Integer... statuses) {
+        return read(STATUS_KEY, Arrays.stream(statuses).map(String::valueOf).toList());
+    }
+
+    /**
+     * 今天下单的订单按状态计数
+     * @param fields 状态或ALL
+     * @return 与参数顺序一致的数量
+     */
+    public List<Integer> countToday(Object... fields) {
+        return read(dayKey(LocalDate.now()), Arrays.stream(fields).map(String::valueOf).toList());
+    }
+
+    /**
+     * 对账：按数据库重新计算全部订单和今天订单的计数
+     */
+    public void reconcile() {
+        reset(STATUS_KEY, orderMapper.countGroupByStatus(new HashMap<>()), false, 0);
+
+        Map<String, Object> map = new HashMap<>();
+        map.put("begin", LocalDateTime.now().with(LocalTime.MIN));
+        reset(dayKey(LocalDate.now()), orderMapper.countGroupByStatus(map), true, DAY_KEY_TTL_SECONDS);
+    }
+
+    // 一次HMGET读取，计数器不存在时先对账
+    private List<Integer> read(String key, List<String> fields) {
+        List<Object> values = stringRedisTemplate.opsForHash().multiGet(key, new ArrayList<>(fields));
+        if (values.stream().allMatch(value -> value == null) && !Boolean.TRUE.equals(stringRedisTemplate.hasKey(key))) {
+            reconcile();
+            values = stringRedisTemplate.opsForHash().multiGet(key, new ArrayList<>(fields));
+        }
+        List<Integer> counts = new ArrayList<>();
+        for (Object value : values) {
+            counts.add(value == null ? 0 : Math.max(0, Integer.parseInt(value.toString())));
+        }
+        return counts;
+    }
+
+    private void reset(String key, List<OrderStatusCountDTO> statusCounts, boolean withAll, long ttlSeconds) {
+        Map<Integer, Long> countMap = new HashMap<>();
+        long all = 0;
+        for (OrderStatusCountDTO statusCount : statusCounts) {
+            countMap.put(statusCount.getStatus(), statusCount.getCount());
+            all += statusCount.getCount();
+        }
+
+        List<String> args = new ArrayList<>();
+        args.add(String.valueOf(ttlSeconds));
+        for (Integer status : STATUSES) {
+            args.add(String.valueOf(status));
+            args.add(String.valueOf(countMap.getOrDefault(status, 0L)));
+        }
+        if (withAll) {
+            args.add(ALL);
+            args.add(String.valueOf(all));
+        }
+        stringRedisTemplate.execute(RESET_SCRIPT, List.of(key), args.toArray());
+    }
+
+    private String dayKey(LocalDate day) {
+        return DAY_KEY_PREFIX + day;
+    }
+}
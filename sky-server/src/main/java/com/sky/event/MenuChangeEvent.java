@@ -0,0 +1,52 @@
+package com.sky.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * 菜单变更事件，管理端修改菜品、套餐、分类后发布，
+ * 携带受影响的分类id和菜品/套餐id，供缓存等组件做精确失效
+ */
+@Getter
+@ToString
+@AllArgsConstructor
+public class MenuChangeEvent {
+
+    public enum Type {
+        DISH, SETMEAL, CATEGORY
+    }
+
+    private final Type type;
+
+    //受影响的分类id
+    private final Set<Long> categoryIds;
+
+    //受影响的菜品id或套餐id，分类变更时为空
+    private final Set<Long> itemIds;
+
+    public static MenuChangeEvent dish(Collection<Long> categoryIds, Collection<Long> dishIds) {
+        return new MenuChangeEvent(Type.DISH, toSet(categoryIds), toSet(dishIds));
+    }
+
+    public static MenuChangeEvent setmeal(Collection<Long> categoryIds, Collection<Long> setmealIds) {
+        return new MenuChangeEvent(Type.SETMEAL, toSet(categoryIds), toSet(setmealIds));
+    }
+
+    public static MenuChangeEvent category(Long categoryId) {
+        return new MenuChangeEvent(Type.CATEGORY, toSet(Collections.singletonList(categoryId)), new HashSet<>());
+    }
+
+    private static Set<Long> toSet(Collection<Long> ids) {
+        Set<Long> set = new HashSet<>();
+        if (ids != null) {
+            ids.stream().filter(id -> id != null).forEach(set::add);
+        }
+        return set;
+    }
+}
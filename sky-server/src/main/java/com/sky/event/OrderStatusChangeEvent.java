@@ -0,0 +1,74 @@
+package com.sky.event;
+
+import com.sky.entity.Orders;
+import lombok.Getter;
+import lombok.ToString;
+
+import java.time.LocalDateTime;
+import java.util.function.Supplier;
+
+/**
+ * 订单状态变更事件，下单以及每次状态流转后发布
+ */
+@ToString
+public class OrderStatusChangeEvent {
+
+    @Getter
+    private final Long orderId;
+
+    //下单时间，用于定位按天统计的计数器
+    private LocalDateTime orderTime;
+
+    //变更前的状态，新下单时为null
+    private Integer fromStatus;
+
+    @Getter
+    private final Integer toStatus;
+
+    //状态流转时不查询订单，下单时间和未确定的变更前状态在第一次读取时加载
+    @ToString.Exclude
+    private Supplier<Orders> loader;
+
+    public OrderStatusChangeEvent(Long orderId, LocalDateTime orderTime, Integer fromStatus, Integer toStatus) {
+        this.orderId = orderId;
+        this.orderTime = orderTime;
+        this.fromStatus = fromStatus;
+        this.toStatus = toStatus;
+    }
+
+    /**
+     * @param loader 查询订单的下单时间和prev_status
+     * @param fromStatus 变更前的状态，为null时取订单的prev_status
+     */
+    public OrderStatusChangeEvent(Long orderId, Supplier<Orders> loader, Integer fromStatus, Integer toStatus) {
+        this(orderId, (LocalDateTime) null, fromStatus, toStatus);
+        this.loader = loader;
+    }
+
+    /**
+     * 下单时间，多个监听器共用一次加载结果
+     */
+    public LocalDateTime getOrderTime() {
+        load();
+        return orderTime;
+    }
+
+    public Integer getFromStatus() {
+        load();
+        return fromStatus;
+    }
+
+    private synchronized void load() {
+        if (loader == null) {
+            return;
+        }
+        Orders orders = loader.get();
+        loader = null;
+        if (orders != null) {
+            orderTime = orders.getOrderTime();
+            if (fromStatus == null) {
+                fromStatus = orders.getPrevStatus();
+            }
+        }
+    }
+}
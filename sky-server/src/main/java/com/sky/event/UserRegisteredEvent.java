@@ -0,0 +1,21 @@
+package com.sky.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+import java.time.LocalDateTime;
+
+/**
+ * 新用户注册事件，微信登录自动注册后发布
+ */
+@Getter
+@ToString
+@AllArgsConstructor
+public class UserRegisteredEvent {
+
+    private final Long userId;
+
+    //注册时间，用于定位按天统计的新增用户数
+    private final LocalDateTime createTime;
+}
@@ -0,0 +1,64 @@
+package com.sky.mapper;
+
+import com.sky.dto.DailySalesDTO;
+import com.sky.entity.DailyBusinessStats;
+import org.apache.ibatis.annotations.Delete;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Select;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+@Mapper
+public interface DailyStatsMapper {
+
+    /**
+     * 累加某一天的营业数据，当天没有记录时插入
+     * @param stats 各字段为增量
+     */
+    void increment(DailyBusinessStats stats);
+
+    /**
+     * 累加某一天的商品销量
+     * @param map statDate、sales
+     */
+    void incrementSales(Map map);
+
+    /**
+     * 查询日期范围内的营业数据，没有数据的日期不返回
+     * @param map begin、end
+     * @return
+     */
+    List<DailyBusinessStats> getByDateRange(Map map);
+
+    /**
+     * 某一天之前注册的用户总数，作为用户累计数量的基数
+     * @param date
+     * @return
+     */
+    @Select("select ifnull(sum(new_users), 0) from daily_business_stats where stat_date < #{date}")
+    Long sumNewUsersBefore(LocalDate date);
+
+    /**
+     * 查询日期范围内每一天的商品销量
+     * @param map begin、end
+     * @return 按日期、销量降序
+     */
+    List<DailySalesDTO> getSalesByDateRange(Map map);
+
+    /**
+     * 按订单表和用户表重新计算某一天的营业数据
+     * @param map statDate、beginTime、endTime
+     */
+    void rebuild(Map map);
+
+    /**
+     * 按订单表重新计算某一天的商品销量，调用前先删除当天数据
+     * @param map statDate、beginTime、endTime
+     */
+    void rebuildSales(Map map);
+
+    @Delete("delete from daily_dish_sales where stat_date = #{statDate}")
+    void deleteSales(LocalDate statDate);
+}
@@ -5,6 +5,7 @@ import com.sky.annotation.AutoFill;
 import com.sky.dto.DishPageQueryDTO;
 import com.sky.entity.Dish;
 import com.sky.enumeration.OperationType;
+import com.sky.vo.DishOverViewVO;
 import com.sky.vo.DishVO;
 import org.apache.ibatis.annotations.Mapper;
 import org.apache.ibatis.annotations.Select;
@@ -60,4 +61,19 @@ public interface DishMapper {
      * @return
      */
     Integer countByMap(Map map);
+
+    /**
+     * 一次查询统计起售、停售的菜品数量
+     * @return
+     */
+    @Select("select ifnull(sum(case when status = 1 then 1 else 0 end), 0) as sold, " +
+            "ifnull(sum(case when status = 0 then 1 else 0 end), 0) as discontinued from dish")
+    DishOverViewVO getOverView();
+
+    /**
+     * 根据菜品id查询所属的分类id
+     * @param ids
+     * @return
+     */
+    List<Long> getCategoryIdsByIds(List<Long> ids);
 }
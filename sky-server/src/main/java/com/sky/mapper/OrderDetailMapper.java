@@ -13,4 +13,7 @@ public interface OrderDetailMapper {
 
     @Select("select * from order_detail where order_id = #{orderId}")
     List<OrderDetail> getByOrderId(Long orderId);
+
+    //根据订单id批量查询订单明细
+    List<OrderDetail> getByOrderIds(List<Long> orderIds);
 }
@@ -2,6 +2,7 @@ package com.sky.mapper;
 
 import com.github.pagehelper.Page;
 import com.sky.dto.GoodsSalesDTO;
+import com.sky.dto.OrderStatusCountDTO;
 import com.sky.dto.OrdersPageQueryDTO;
 import com.sky.entity.Orders;
 import org.apache.ibatis.annotations.Mapper;
@@ -32,6 +33,24 @@ public interface OrderMapper {
      */
     void update(Orders orders);
 
+    /**
+     * 状态流转：订单处于fromStatuses之一时才修改，并发修改时只有一个成功；流转前的状态记录到prev_status
+     *
+     * @param orders 订单id、目标状态以及需要同时修改的字段
+     * @param fromStatuses 允许流转的状态
+     * @return 修改的行数，0表示订单不存在或状态不允许流转
+     */
+    int updateStatus(Orders orders, List<Integer> fromStatuses);
+
+    /**
+     * 查询下单时间和流转前的状态，发布状态变更事件时使用
+     *
+     * @param id
+     * @return
+     */
+    @Select("select id, order_time, prev_status from orders where id = #{id}")
+    Orders getStatusChangeById(Long id);
+
 
     /**
      * 历史订单分页查询
@@ -41,6 +60,22 @@ public interface OrderMapper {
      */
     Page<Orders> pageQuery(OrdersPageQueryDTO ordersPageQueryDTO);
 
+    /**
+     * 游标分页查询，按(order_time, id)倒序，不统计总数
+     *
+     * @param map 查询条件，以及上一页最后一条的cursorTime、cursorId和本次查询条数limit
+     * @return
+     */
+    List<Orders> pageQueryByCursor(Map map);
+
+    /**
+     * 按分页查询的条件统计订单数量
+     *
+     * @param ordersPageQueryDTO
+     * @return
+     */
+    Long countByCondition(OrdersPageQueryDTO ordersPageQueryDTO);
+
     /**
      * 根据id查询订单
      *
@@ -63,8 +98,6 @@ public interface OrderMapper {
     List<Orders> processTimeoutOrder(Integer status, LocalDateTime time);
 
 
-    void updateOrderStatus(Map<String, Object> params);
-
     Double sumByMap(Map map);
 
     List<Orders> getOrdersByDateRange(Map map);
@@ -78,4 +111,11 @@ public interface OrderMapper {
      */
     Integer countByMap(Map map);
 
+    /**
+     * 按状态分组统计订单数量
+     * @param map begin为下单时间下限，为null时统计全部订单
+     * @return
+     */
+    List<OrderStatusCountDTO> countGroupByStatus(Map map);
+
 }
@@ -6,6 +6,7 @@ import com.sky.dto.SetmealPageQueryDTO;
 import com.sky.entity.Setmeal;
 import com.sky.enumeration.OperationType;
 import com.sky.vo.DishItemVO;
+import com.sky.vo.SetmealOverViewVO;
 import com.sky.vo.SetmealVO;
 import org.apache.ibatis.annotations.Delete;
 import org.apache.ibatis.annotations.Mapper;
@@ -94,4 +95,26 @@ public interface SetmealMapper {
      */
     Integer countByMap(Map map);
 
+    /**
+     * 一次查询统计起售、停售的套餐数量
+     * @return
+     */
+    @Select("select ifnull(sum(case when status = 1 then 1 else 0 end), 0) as sold, " +
+            "ifnull(sum(case when status = 0 then 1 else 0 end), 0) as discontinued from setmeal")
+    SetmealOverViewVO getOverView();
+
+    /**
+     * 根据套餐id查询所属的分类id
+     * @param ids
+     * @return
+     */
+    List<Long> getCategoryIdsByIds(List<Long> ids);
+
+    /**
+     * 根据id批量查询起售中的套餐
+     * @param ids
+     * @return
+     */
+    List<Setmeal> getByIds(List<Long> ids);
+
 }
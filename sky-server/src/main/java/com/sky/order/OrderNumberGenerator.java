@@ -0,0 +1,195 @@
+package com.sky.order;
+
+import com.sky.properties.OrderNumberProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.Collections;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 订单号生成器，雪花算法：41位毫秒时间戳 + 10位节点id + 12位序列号
+ * 订单号按时间递增，写入索引时总是追加在末尾
+ *
+ * 时间戳和序列号合并保存在一个AtomicLong中，通过CAS无锁生成；
+ * 同一毫秒序列号用完或者时钟回拨时，继续使用上次的时间戳并向后借用，保证单调递增不重复
+ *
+ * 节点id可以配置，未配置时从redis租用，租约定时续期
+ * 本地记录租约到期时间，续期失败、租约到期后拒绝生成订单号，避免与重新租到该节点id的其他节点重复；
+ * 重新租到节点id后，等时钟超过本节点最后一次使用的时间戳才继续生成
+ */
+@Component
+@Slf4j
+public class OrderNumberGenerator {
+
+    //2024-01-01 00:00:00 UTC
+    private static final long EPOCH = 1704067200000L;
+
+    private static final int NODE_BITS = 10;
+    private static final int SEQUENCE_BITS = 12;
+    private static final long MAX_NODE_ID = (1L << NODE_BITS) - 1;
+    private static final long SEQUENCE_MASK = (1L << SEQUENCE_BITS) - 1;
+
+    private static final String NODE_KEY_PREFIX = "order:number:node:";
+
+    //只续期自己持有的租约
+    private static final DefaultRedisScript<Long> RENEW_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('get', KEYS[1]) == ARGV[1] then return redis.call('expire', KEYS[1], ARGV[2]) else return 0 end",
+            Long.class);
+    private static final DefaultRedisScript<Long> RELEASE_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('get', KEYS[1]) == ARGV[1] then return redis.call('del', KEYS[1]) else return 0 end",
+            Long.class);
+
+    @Autowired
+    private OrderNumberProperties orderNumberProperties;
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    //高位为相对EPOCH的时间戳，低12位为序列号
+    private final AtomicLong state = new AtomicLong();
+
+    private final String leaseToken = UUID.randomUUID().toString();
+    private volatile Lease lease;
+    private ScheduledExecutorService renewExecutor;
+
+    @PostConstruct
+    public void init() {
+        if (orderNumberProperties.getNodeId() >= 0) {
+            if (orderNumberProperties.getNodeId() > MAX_NODE_ID) {
+                throw new IllegalStateException("订单号节点id需在0~" + MAX_NODE_ID + "之间:" + orderNumberProperties.getNodeId());
+            }
+            lease = new Lease(orderNumberProperties.getNodeId(), Long.MAX_VALUE, 0);
+            log.info("订单号生成器使用配置的节点id:{}", lease.nodeId);
+            return;
+        }
+        acquire();
+        long period = Math.max(1, orderNumberProperties.getLeaseTtlSeconds() / 3);
+        renewExecutor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "order-number-lease");
+            thread.setDaemon(true);
+            return thread;
+        });
+        renewExecutor.scheduleAtFixedRate(this::renew, period, period, TimeUnit.SECONDS);
+    }
+
+    /**
+     * 生成下一个订单号
+     * @return
+     */
+    public String nextNumber() {
+        return String.valueOf(nextId());
+    }
+
+    public long nextId() {
+        Lease current = lease;
+        long millis = System.currentTimeMillis();
+        if (current == null || millis >= current.expiresAt) {
+            throw new IllegalStateException("订单号节点id租约已过期，暂停生成订单号");
+        }
+        if (millis < current.notBefore) {
+            throw new IllegalStateException("订单号节点id刚重新租用，等待时钟超过上次使用的时间戳");
+        }
+        return nextId(current.nodeId);
+    }
+
+    private long nextId(long nodeId) {
+        while (true) {
+            long current = state.get();
+            long lastTimestamp = current >>> SEQUENCE_BITS;
+            long now = System.currentTimeMillis() - EPOCH;
+            long next;
+            if (now > lastTimestamp) {
+                next = now << SEQUENCE_BITS;
+            } else if ((current & SEQUENCE_MASK) < SEQUENCE_MASK) {
+                //同一毫秒或时钟回拨，序列号加1
+                next = current + 1;
+            } else {
+                //序列号用完，借用下一毫秒
+                next = (lastTimestamp + 1) << SEQUENCE_BITS;
+            }
+            if (state.compareAndSet(current, next)) {
+                long timestamp = next >>> SEQUENCE_BITS;
+                return (timestamp << (NODE_BITS + SEQUENCE_BITS)) | (nodeId << SEQUENCE_BITS) | (next & SEQUENCE_MASK);
+            }
+        }
+    }
+
+    // 租用节点id，到期时间按发起请求前的时间计算，比redis中的实际到期时间略早
+    private void acquire() {
+        long requestedAt = System.currentTimeMillis();
+        long nodeId = lease();
+        long notBefore = (state.get() >>> SEQUENCE_BITS) + EPOCH + 1;
+        lease = new Lease(nodeId, requestedAt + TimeUnit.SECONDS.toMillis(orderNumberProperties.getLeaseTtlSeconds()), notBefore);
+    }
+
+    // 从0开始找一个未被占用的节点id
+    private long lease() {
+        for (long id = 0; id <= MAX_NODE_ID; id++) {
+            Boolean leased = stringRedisTemplate.opsForValue().setIfAbsent(NODE_KEY_PREFIX + id, leaseToken,
+                    orderNumberProperties.getLeaseTtlSeconds(), TimeUnit.SECONDS);
+            if (Boolean.TRUE.equals(leased)) {
+                log.info("订单号生成器租用节点id:{}", id);
+                return id;
+            }
+        }
+        throw new IllegalStateException("没有可用的订单号节点id");
+    }
+
+    private void renew() {
+        Lease current = lease;
+        long requestedAt = System.currentTimeMillis();
+        try {
+            Long renewed = stringRedisTemplate.execute(RENEW_SCRIPT, Collections.singletonList(NODE_KEY_PREFIX + current.nodeId),
+                    leaseToken, String.valueOf(orderNumberProperties.getLeaseTtlSeconds()));
+            if (renewed != null && renewed > 0) {
+                lease = new Lease(current.nodeId,
+                        requestedAt + TimeUnit.SECONDS.toMillis(orderNumberProperties.getLeaseTtlSeconds()), current.notBefore);
+                return;
+            }
+            //租约已过期，可能已被其他节点占用，先停止生成再重新租用
+            log.warn("订单号节点id租约丢失:{}，重新租用", current.nodeId);
+            lease = new Lease(current.nodeId, 0, current.notBefore);
+            acquire();
+            log.info("订单号生成器重新租用节点id:{}", lease.nodeId);
+        } catch (Exception e) {
+            //续期失败时租约按本地记录的时间到期，到期后nextId拒绝生成
+            log.error("订单号节点id续期失败:{}", current.nodeId, e);
+        }
+    }
+
+    @PreDestroy
+    public void destroy() {
+        if (renewExecutor == null) {
+            return;
+        }
+        renewExecutor.shutdown();
+        try {
+            stringRedisTemplate.execute(RELEASE_SCRIPT, Collections.singletonList(NODE_KEY_PREFIX + lease.nodeId), leaseToken);
+        } catch (Exception e) {
+            log.warn("释放订单号节点id失败:{}", lease.nodeId, e);
+        }
+    }
+
+    private static class Lease {
+        private final long nodeId;
+        //本地记录的租约到期时间
+        private final long expiresAt;
+        //允许生成订单号的最早时间
+        private final long notBefore;
+
+        private Lease(long nodeId, long expiresAt, long notBefore) {
+            this.nodeId = nodeId;
+            this.expiresAt = expiresAt;
+            this.notBefore = notBefore;
+        }
+    }
+}
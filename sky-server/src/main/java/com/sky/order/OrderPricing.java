@@ -0,0 +1,97 @@
+package com.sky.order;
+
+import com.sky.cache.MenuItem;
+import com.sky.cache.MenuItemTable;
+import com.sky.constant.MessageConstant;
+import com.sky.constant.StatusConstant;
+import com.sky.entity.ShoppingCart;
+import com.sky.exception.OrderBusinessException;
+import com.sky.properties.OrderPricingProperties;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 订单计价：按MenuItemTable中的当前价格重新计算商品金额、打包费、配送费和订单总额
+ * 全部按分计算，不查询数据库；商品已停售，或者购物车中的单价、客户端提交的打包费和总额与计算结果不一致时拒绝下单
+ */
+@Component
+@Slf4j
+public class OrderPricing {
+
+    @Autowired
+    private MenuItemTable menuItemTable;
+    @Autowired
+    private OrderPricingProperties orderPricingProperties;
+
+    /**
+     * 计算订单价格
+     * @param items 购物车商品
+     * @param packAmount 客户端提交的打包费(元)，为null时不校验
+     * @param amount 客户端提交的总金额(元)，为null时不校验
+     * @return 与购物车商品顺序一致的单价，以及打包费和总金额
+     */
+    public Price price(List<ShoppingCart> items, Integer packAmount, BigDecimal amount) {
+        List<BigDecimal> unitAmounts = new ArrayList<>(items.size());
+        long goodsCents = 0;
+        long quantity = 0;
+        for (ShoppingCart cart : items) {
+            MenuItem item = cart.getDishId() != null
+                    ? menuItemTable.getDish(cart.getDishId())
+                    : menuItemTable.getSetmeal(cart.getSetmealId());
+            if (item == null) {
+                throw new OrderBusinessException(MessageConstant.ITEM_NOT_FOUND);
+            }
+            if (!StatusConstant.ENABLE.equals(item.getStatus())) {
+                throw new OrderBusinessException(MessageConstant.ITEM_DISABLED);
+            }
+            if (cart.getAmount() != null && toCents(cart.getAmount()) != item.getPriceCents()) {
+                log.info("商品价格已变化，购物车:{}，当前价格:{}", cart, item.getPrice());
+                throw new OrderBusinessException(MessageConstant.PRICE_CHANGED);
+            }
+            goodsCents += item.getPriceCents() * cart.getNumber();
+            quantity += cart.getNumber();
+            unitAmounts.add(fromCents(item.getPriceCents()));
+        }
+
+        long packCents = toCents(orderPricingProperties.getPackFee()) * quantity;
+        long totalCents = goodsCents + packCents + toCents(orderPricingProperties.getDeliveryFee());
+        if ((packAmount != null && packAmount * 100L != packCents)
+                || (amount != null && toCents(amount) != totalCents)) {
+            log.info("订单金额不一致，提交打包费:{}，提交金额:{}，计算打包费:{}分，计算金额:{}分",
+                    packAmount, amount, packCents, totalCents);
+            throw new OrderBusinessException(MessageConstant.ORDER_AMOUNT_INVALID);
+        }
+        return new Price(unitAmounts, (int) (packCents / 100), fromCents(totalCents));
+    }
+
+    private static long toCents(BigDecimal value) {
+        return value.movePointRight(2).setScale(0, RoundingMode.HALF_UP).longValue();
+    }
+
+    private static BigDecimal fromCents(long cents) {
+        return BigDecimal.valueOf(cents, 2);
+    }
+
+    @Getter
+    public static class Price {
+        //商品单价，与购物车商品顺序一致
+        private final List<BigDecimal> unitAmounts;
+        //打包费，单位元
+        private final int packAmount;
+        //订单总金额
+        private final BigDecimal amount;
+
+        private Price(List<BigDecimal> unitAmounts, int packAmount, BigDecimal amount) {
+            this.unitAmounts = unitAmounts;
+            this.packAmount = packAmount;
+            this.amount = amount;
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package com.sky.order;
+
+import com.sky.constant.MessageConstant;
+import com.sky.entity.Orders;
+import com.sky.event.OrderStatusChangeEvent;
+import com.sky.exception.OrderBusinessException;
+import com.sky.mapper.OrderMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * 订单状态机
+ * 每次流转只执行一条 update ... where id = ? and status in (...)，按修改行数判断是否成功，
+ * 并发的用户取消和商家接单只有一个能生效；流转前的状态在同一条update中记录到prev_status
+ * 流转成功后发布状态变更事件，由计数器、每日统计等组件处理
+ */
+@Component
+@Slf4j
+public class OrderStateMachine {
+
+    /**
+     * 状态流转表：目标状态以及允许流转的状态
+     * 有多个来源状态的流转，目标状态必须是终态，事件监听器读取prev_status时不会被后续流转覆盖
+     */
+    public enum Transition {
+        PAY(Orders.TO_BE_CONFIRMED, Orders.PENDING_PAYMENT),
+        CONFIRM(Orders.CONFIRMED, Orders.TO_BE_CONFIRMED),
+        REJECT(Orders.CANCELLED, Orders.TO_BE_CONFIRMED),
+        USER_CANCEL(Orders.CANCELLED, Orders.PENDING_PAYMENT, Orders.TO_BE_CONFIRMED),
+        ADMIN_CANCEL(Orders.CANCELLED, Orders.PENDING_PAYMENT, Orders.TO_BE_CONFIRMED, Orders.CONFIRMED, Orders.DELIVERY_IN_PROGRESS),
+        TIMEOUT_CANCEL(Orders.CANCELLED, Orders.PENDING_PAYMENT),
+        DELIVER(Orders.DELIVERY_IN_PROGRESS, Orders.CONFIRMED),
+        COMPLETE(Orders.COMPLETED, Orders.DELIVERY_IN_PROGRESS);
+
+        private final Integer toStatus;
+        private final List<Integer> fromStatuses;
+
+        Transition(Integer toStatus, Integer... fromStatuses) {
+            this.toStatus = toStatus;
+            this.fromStatuses = List.of(fromStatuses);
+        }
+
+        // 只有一个来源状态时不需要读取prev_status
+        private Integer knownFromStatus() {
+            return fromStatuses.size() == 1 ? fromStatuses.get(0) : null;
+        }
+    }
+
+    @Autowired
+    private OrderMapper orderMapper;
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    /**
+     * 新订单创建
+     */
+    public void created(Orders orders) {
+        eventPublisher.publishEvent(new OrderStatusChangeEvent(orders.getId(), orders.getOrderTime(), null, orders.getStatus()));
+    }
+
+    /**
+     * 执行状态流转，订单不存在或当前状态不允许流转时抛出异常
+     * @param id 订单id
+     * @param transition
+     * @param changes 需要同时修改的字段，可以为null
+     */
+    public void transit(Long id, Transition transition, Orders changes) {
+        if (!tryTransit(id, transition, changes)) {
+            //只在失败时查询一次，区分订单不存在和状态错误
+            Orders ordersDB = orderMapper.getById(id);
+            log.info("订单状态流转失败，订单id:{}，流转:{}，当前状态:{}", id, transition,
+                    ordersDB == null ? null : ordersDB.getStatus());
+            throw new OrderBusinessException(ordersDB == null ? MessageConstant.ORDER_NOT_FOUND : MessageConstant.ORDER_STATUS_ERROR);
+        }
+    }
+
+    /**
+     * 尝试执行状态流转
+     * @return 是否流转成功，订单不存在或当前状态不允许流转时返回false
+     */
+    public boolean tryTransit(Long id, Transition transition, Orders changes) {
+        return update(id, transition, changes, () -> orderMapper.getStatusChangeById(id));
+    }
+
+    /**
+     * 尝试执行状态流转，已查询出订单时使用，事件不再查询下单时间
+     * @param ordersDB 查询出的订单
+     * @return 是否流转成功
+     */
+    public boolean tryTransit(Orders ordersDB, Transition transition, Orders changes) {
+        Long id = ordersDB.getId();
+        return update(id, transition, changes, transition.knownFromStatus() != null
+                ? () -> ordersDB
+                : () -> orderMapper.getStatusChangeById(id));
+    }
+
+    private boolean update(Long id, Transition transition, Orders changes, Supplier<Orders> loader) {
+        Orders orders = changes == null ? new Orders() : changes;
+        orders.setId(id);
+        orders.setStatus(transition.toStatus);
+        if (orderMapper.updateStatus(orders, transition.fromStatuses) == 0) {
+            return false;
+        }
+        eventPublisher.publishEvent(new OrderStatusChangeEvent(id, loader, transition.knownFromStatus(), transition.toStatus));
+        return true;
+    }
+}
@@ -0,0 +1,217 @@
+package com.sky.report;
+
+import com.sky.entity.DailyBusinessStats;
+import com.sky.mapper.DailyStatsMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.serializer.GenericToStringSerializer;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 按天缓存的报表数据，key为 report:day:{报表类型}:{日期}
+ * 今天之前的数据很少变化，第一次查询后在redis中保存30天；今天的数据每次实时查询
+ * 过去日期的数据被修改时(跨天完成的订单、每晚重算)，事务提交后把该日期的代数
+ * report:day:gen:{日期} 加1并删除缓存；写入缓存时校验代数，查询期间发生过修改的日期不写入，
+ * 避免旧数据在删除之后被重新写回
+ *
+ * 相同日期范围的并发查询合并为一次，其余线程等待同一个结果
+ */
+@Component
+@Slf4j
+public class DailyReportCache {
+
+    private static final String KEY_PREFIX = "report:day:";
+    private static final String STATS = "stats";
+    private static final String GENERATION_PREFIX = KEY_PREFIX + "gen:";
+    private static final long TTL_SECONDS = TimeUnit.DAYS.toSeconds(30);
+
+    //KEYS: 缓存、代数、缓存、代数...  ARGV: 过期时间(秒)、查询前读取的代数、数据、代数、数据...
+    //代数未变化时才写入
+    private static final DefaultRedisScript<Long> SET_IF_GENERATION_SCRIPT = new DefaultRedisScript<>(
+            "local n = 0 " +
+            "for i = 1, #KEYS, 2 do " +
+            "  if (redis.call('get', KEYS[i + 1]) or '0') == ARGV[i + 1] then " +
+            "    redis.call('set', KEYS[i], ARGV[i + 2], 'EX', ARGV[1]) n = n + 1 " +
+            "  end " +
+            "end " +
+            "return n", Long.class);
+
+    @Autowired
+    private RedisTemplate redisTemplate;
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+    @Autowired
+    private DailyStatsMapper dailyStatsMapper;
+
+    //正在查询的日期范围
+    private final ConcurrentMap<String, CompletableFuture<List<DailyBusinessStats>>> loadingMap = new ConcurrentHashMap<>();
+
+    /**
+     * 查询日期范围内的每日营业数据，没有数据的日期返回0
+     * @param begin
+     * @param end
+     * @return 按日期升序
+     */
+    public List<DailyBusinessStats> getStats(LocalDate begin, LocalDate end) {
+        String loadingKey = STATS + ":" + begin + ":" + end;
+        CompletableFuture<List<DailyBusinessStats>> future = new CompletableFuture<>();
+        CompletableFuture<List<DailyBusinessStats>> loading = loadingMap.putIfAbsent(loadingKey, future);
+        if (loading != null) {
+            try {
+                return loading.join();
+            } catch (CompletionException e) {
+                throw e.getCause() instanceof RuntimeException cause ? cause : new RuntimeException(e.getCause());
+            }
+        }
+
+        try {
+            List<DailyBusinessStats> statsList = loadStats(begin, end);
+            future.complete(statsList);
+            return statsList;
+        } catch (RuntimeException e) {
+            future.completeExceptionally(e);
+            throw e;
+        } finally {
+            loadingMap.remove(loadingKey, future);
+        }
+    }
+
+    /**
+     * 某一天的数据被修改，当前事务提交后代数加1并删除缓存，没有事务时立即执行
+     * @param day
+     */
+    public void evict(LocalDate day) {
+        if (!day.isBefore(LocalDate.now())) {
+            //今天的数据没有缓存
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    invalidate(day);
+                }
+            });
+        } else {
+            invalidate(day);
+        }
+    }
+
+    // 先增加代数再删除，之后的查询读到新代数时数据库已经提交
+    private void invalidate(LocalDate day) {
+        String generationKey = GENERATION_PREFIX + day;
+        stringRedisTemplate.opsForValue().increment(generationKey);
+        stringRedisTemplate.expire(generationKey, TTL_SECONDS, TimeUnit.SECONDS);
+        redisTemplate.delete(key(STATS, day));
+    }
+
+    private List<DailyBusinessStats> loadStats(LocalDate begin, LocalDate end) {
+        LocalDate today = LocalDate.now();
+        List<DailyBusinessStats> statsList = new ArrayList<>();
+
+        //今天之前的日期先读缓存，缺少的日期一次查询后写入缓存
+        LocalDate pastEnd = end.isBefore(today) ? end : today.minusDays(1);
+        if (!begin.isAfter(pastEnd)) {
+            List<String> keys = new ArrayList<>();
+            for (LocalDate day = begin; !day.isAfter(pastEnd); day = day.plusDays(1)) {
+                keys.add(key(STATS, day));
+            }
+            List<Object> cached = redisTemplate.opsForValue().multiGet(keys);
+
+            LocalDate firstMissing = null;
+            LocalDate lastMissing = null;
+            List<String> generationKeys = new ArrayList<>();
+            for (int i = 0; i < keys.size(); i++) {
+                if (cached.get(i) == null) {
+                    LocalDate day = begin.plusDays(i);
+                    firstMissing = firstMissing == null ? day : firstMissing;
+                    lastMissing = day;
+                    generationKeys.add(GENERATION_PREFIX + day);
+                }
+            }
+            Map<LocalDate, DailyBusinessStats> loaded = new HashMap<>();
+            List<String> generations = null;
+            if (firstMissing != null) {
+                //查询数据库之前读取代数
+                generations = stringRedisTemplate.opsForValue().multiGet(generationKeys);
+                for (DailyBusinessStats stats : query(firstMissing, lastMissing)) {
+                    loaded.put(stats.getStatDate(), stats);
+                }
+            }
+
+            List<String> cacheKeys = new ArrayList<>();
+            List<byte[]> args = new ArrayList<>();
+            args.add(bytes(String.valueOf(TTL_SECONDS)));
+            RedisSerializer valueSerializer = redisTemplate.getValueSerializer();
+            for (int i = 0; i < keys.size(); i++) {
+                LocalDate day = begin.plusDays(i);
+                DailyBusinessStats stats = (DailyBusinessStats) cached.get(i);
+                if (stats == null) {
+                    stats = loaded.getOrDefault(day, empty(day));
+                    String generation = generations.get(cacheKeys.size() / 2);
+                    cacheKeys.add(keys.get(i));
+                    cacheKeys.add(GENERATION_PREFIX + day);
+                    args.add(bytes(generation == null ? "0" : generation));
+                    args.add(valueSerializer.serialize(stats));
+                }
+                statsList.add(stats);
+            }
+            if (!cacheKeys.isEmpty()) {
+                Long cachedDays = (Long) redisTemplate.execute(SET_IF_GENERATION_SCRIPT, RedisSerializer.byteArray(),
+                        new GenericToStringSerializer<>(Long.class), cacheKeys, args.toArray());
+                log.info("缓存{}天的报表数据:{}~{}，写入{}天", cacheKeys.size() / 2, firstMissing, lastMissing, cachedDays);
+            }
+        }
+
+        //今天的数据实时查询
+        if (!begin.isAfter(today) && !end.isBefore(today)) {
+            List<DailyBusinessStats> todayStats = query(today, today);
+            statsList.add(todayStats.isEmpty() ? empty(today) : todayStats.get(0));
+        }
+        return statsList;
+    }
+
+    private List<DailyBusinessStats> query(LocalDate begin, LocalDate end) {
+        Map map = new HashMap();
+        map.put("begin", begin);
+        map.put("end", end);
+        return dailyStatsMapper.getByDateRange(map);
+    }
+
+    private DailyBusinessStats empty(LocalDate day) {
+        return DailyBusinessStats.builder()
+                .statDate(day)
+                .turnover(BigDecimal.ZERO)
+                .totalOrders(0)
+                .validOrders(0)
+                .newUsers(0)
+                .build();
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private String key(String type, LocalDate day) {
+        return KEY_PREFIX + type + ":" + day;
+    }
+}
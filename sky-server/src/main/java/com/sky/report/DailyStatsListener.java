@@ -0,0 +1,39 @@
+package com.sky.report;
+
+import com.sky.event.OrderStatusChangeEvent;
+import com.sky.event.UserRegisteredEvent;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+/**
+ * 业务事务提交后更新每日营业数据
+ * 更新在DailyStatsRecorder的独立事务中执行，失败时整体回滚，这里只记录日志，不影响已提交的业务；
+ * 遗漏的部分由每晚的重算任务纠正
+ */
+@Component
+@Slf4j
+public class DailyStatsListener {
+
+    @Autowired
+    private DailyStatsRecorder dailyStatsRecorder;
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onStatusChange(OrderStatusChangeEvent event) {
+        try {
+            dailyStatsRecorder.onStatusChange(event);
+        } catch (Exception e) {
+            log.error("更新每日营业数据失败:{}", event, e);
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onUserRegistered(UserRegisteredEvent event) {
+        try {
+            dailyStatsRecorder.onUserRegistered(event.getCreateTime());
+        } catch (Exception e) {
+            log.error("更新每日新增用户失败:{}", event, e);
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package com.sky.report;
+
+import com.sky.dto.GoodsSalesDTO;
+import com.sky.entity.DailyBusinessStats;
+import com.sky.entity.OrderDetail;
+import com.sky.entity.Orders;
+import com.sky.event.OrderStatusChangeEvent;
+import com.sky.mapper.DailyStatsMapper;
+import com.sky.mapper.OrderDetailMapper;
+import com.sky.mapper.OrderMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 维护每日营业数据汇总表
+ * 下单时订单总数加1，订单完成时累加营业额、有效订单数、商品销量和畅销商品摘要，新用户注册时新增用户数加1；
+ * 由DailyStatsListener在业务事务提交后调用，增量更新失败或遗漏的部分由每晚的重算任务纠正；修改过去日期的数据后删除对应的报表缓存
+ */
+@Component
+public class DailyStatsRecorder {
+
+    @Autowired
+    private DailyStatsMapper dailyStatsMapper;
+    @Autowired
+    private OrderMapper orderMapper;
+    @Autowired
+    private OrderDetailMapper orderDetailMapper;
+    @Autowired
+    private DailyReportCache dailyReportCache;
+    @Autowired
+    private SalesTopK salesTopK;
+
+    /**
+     * 订单状态变更，在新事务中累加，异常时回滚并抛出
+     */
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public void onStatusChange(OrderStatusChangeEvent event) {
+        if (event.getFromStatus() == null) {
+            LocalDate day = orderDay(event);
+            dailyStatsMapper.increment(delta(day).totalOrders(1).build());
+            dailyReportCache.evict(day);
+        }
+        if (Orders.COMPLETED.equals(event.getToStatus()) && !Orders.COMPLETED.equals(event.getFromStatus())) {
+            LocalDate day = orderDay(event);
+            recordCompleted(event.getOrderId(), day);
+            dailyReportCache.evict(day);
+        }
+    }
+
+    /**
+     * 新用户注册，在新事务中累加，异常时回滚并抛出
+     * @param createTime 注册时间
+     */
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public void onUserRegistered(LocalDateTime createTime) {
+        dailyStatsMapper.increment(delta(createTime.toLocalDate()).newUsers(1).build());
+        dailyReportCache.evict(createTime.toLocalDate());
+    }
+
+    /**
+     * 按订单表和用户表重新计算某一天的营业数据和商品销量
+     * @param day
+     */
+    @Transactional
+    public void rebuild(LocalDate day) {
+        Map map = new HashMap();
+        map.put("statDate", day);
+        map.put("beginTime", LocalDateTime.of(day, LocalTime.MIN));
+        map.put("endTime", LocalDateTime.of(day, LocalTime.MAX));
+        dailyStatsMapper.rebuild(map);
+        dailyStatsMapper.deleteSales(day);
+        dailyStatsMapper.rebuildSales(map);
+        dailyReportCache.evict(day);
+        salesTopK.rebuild(day);
+    }
+
+    private void recordCompleted(Long orderId, LocalDate day) {
+        Orders orders = orderMapper.getById(orderId);
+        if (orders == null) {
+            return;
+        }
+        BigDecimal amount = orders.getAmount() == null ? BigDecimal.ZERO : orders.getAmount();
+        dailyStatsMapper.increment(delta(day).validOrders(1).turnover(amount).build());
+
+        //同一订单中同名的明细合并后再累加
+        Map<String, Integer> numberMap = new LinkedHashMap<>();
+        for (OrderDetail orderDetail : orderDetailMapper.getByOrderId(orderId)) {
+            numberMap.merge(orderDetail.getName(), orderDetail.getNumber(), Integer::sum);
+        }
+        if (numberMap.isEmpty()) {
+            return;
+        }
+        List<GoodsSalesDTO> sales = numberMap.entrySet().stream()
+                .map(entry -> new GoodsSalesDTO(entry.getKey(), entry.getValue()))
+                .toList();
+        Map map = new HashMap();
+        map.put("statDate", day);
+        map.put("sales", sales);
+        dailyStatsMapper.incrementSales(map);
+        salesTopK.record(day, numberMap);
+    }
+
+    // 订单按下单日期统计，状态流转事件中的下单时间在这里才加载
+    private LocalDate orderDay(OrderStatusChangeEvent event) {
+        return event.getOrderTime() == null ? LocalDate.now() : event.getOrderTime().toLocalDate();
+    }
+
+    private DailyBusinessStats.DailyBusinessStatsBuilder delta(LocalDate day) {
+        return DailyBusinessStats.builder()
+                .statDate(day)
+                .turnover(BigDecimal.ZERO)
+                .totalOrders(0)
+                .validOrders(0)
+                .newUsers(0);
+    }
+}
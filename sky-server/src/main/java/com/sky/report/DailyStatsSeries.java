@@ -0,0 +1,177 @@
+package com.sky.report;
+
+import com.sky.entity.DailyBusinessStats;
+import com.sky.vo.BusinessDataVO;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+
+/**
+ * 按天汇总的报表数据，下标为相对begin的天数
+ * 金额以分为单位用long保存，累加过程中没有装箱和浮点误差
+ */
+public class DailyStatsSeries {
+
+    private final LocalDate begin;
+    private final int days;
+
+    private final long[] turnoverCents;
+    private final long[] totalOrders;
+    private final long[] validOrders;
+    private final long[] newUsers;
+
+    public DailyStatsSeries(LocalDate begin, LocalDate end) {
+        this.begin = begin;
+        this.days = (int) ChronoUnit.DAYS.between(begin, end) + 1;
+        this.turnoverCents = new long[days];
+        this.totalOrders = new long[days];
+        this.validOrders = new long[days];
+        this.newUsers = new long[days];
+    }
+
+    /**
+     * 累加一天的数据，范围外的日期忽略
+     */
+    public void add(DailyBusinessStats stats) {
+        long offset = ChronoUnit.DAYS.between(begin, stats.getStatDate());
+        if (offset < 0 || offset >= days) {
+            return;
+        }
+        int i = (int) offset;
+        turnoverCents[i] += toCents(stats.getTurnover());
+        totalOrders[i] += stats.getTotalOrders();
+        validOrders[i] += stats.getValidOrders();
+        newUsers[i] += stats.getNewUsers();
+    }
+
+    public int getDays() {
+        return days;
+    }
+
+    public LocalDate getDate(int i) {
+        return begin.plusDays(i);
+    }
+
+    public long getTotalOrders(int i) {
+        return totalOrders[i];
+    }
+
+    public long getValidOrders(int i) {
+        return validOrders[i];
+    }
+
+    public long getNewUsers(int i) {
+        return newUsers[i];
+    }
+
+    public long sumTotalOrders() {
+        return sum(totalOrders);
+    }
+
+    public long sumValidOrders() {
+        return sum(validOrders);
+    }
+
+    /**
+     * 某一天的营业数据
+     */
+    public BusinessDataVO businessData(int i) {
+        return businessData(turnoverCents[i], totalOrders[i], validOrders[i], newUsers[i]);
+    }
+
+    /**
+     * 整个日期范围的营业数据
+     */
+    public BusinessDataVO totalBusinessData() {
+        return businessData(sum(turnoverCents), sum(totalOrders), sum(validOrders), sum(newUsers));
+    }
+
+    /**
+     * 日期列表，格式与LocalDate.toString一致
+     */
+    public String joinDates() {
+        StringBuilder sb = new StringBuilder(days * 11);
+        for (int i = 0; i < days; i++) {
+            if (i > 0) {
+                sb.append(',');
+            }
+            sb.append(begin.plusDays(i));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * 每日营业额，以元为单位，格式与Double.toString一致
+     * 分转换为double后取最接近的值，和BigDecimal.doubleValue结果相同
+     */
+    public String joinTurnover() {
+        StringBuilder sb = new StringBuilder(days * 8);
+        for (int i = 0; i < days; i++) {
+            if (i > 0) {
+                sb.append(',');
+            }
+            sb.append(turnoverCents[i] / 100.0);
+        }
+        return sb.toString();
+    }
+
+    public String joinTotalOrders() {
+        return join(totalOrders);
+    }
+
+    public String joinValidOrders() {
+        return join(validOrders);
+    }
+
+    public String joinNewUsers() {
+        return join(newUsers);
+    }
+
+    /**
+     * 营业额：已完成订单的总金额
+     * 有效订单：已完成订单的数量
+     * 订单完成率：有效订单数 / 总订单数
+     * 平均客单价：营业额 / 有效订单数
+     * 新增用户：新增用户的数量
+     */
+    private static BusinessDataVO businessData(long turnoverCents, long totalOrders, long validOrders, long newUsers) {
+        double turnover = turnoverCents / 100.0;
+        double orderCompletionRate = 0.0;
+        double unitPrice = 0.0;
+        if (totalOrders != 0 && validOrders != 0) {
+            orderCompletionRate = (double) validOrders / totalOrders;
+            unitPrice = turnover / validOrders;
+        }
+        return BusinessDataVO.builder()
+                .turnover(turnover)
+                .validOrderCount((int) validOrders)
+                .orderCompletionRate(orderCompletionRate)
+                .unitPrice(unitPrice)
+                .newUsers((int) newUsers)
+                .build();
+    }
+
+    private static String join(long[] values) {
+        StringBuilder sb = new StringBuilder(values.length * 4);
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                sb.append(',');
+            }
+            sb.append(values[i]);
+        }
+        return sb.toString();
+    }
+
+    private static long sum(long[] values) {
+        long sum = 0;
+        for (long value : values) {
+            sum += value;
+        }
+        return sum;
+    }
+
+    private static long toCents(BigDecimal amount) {
+        return amount == null ? 0 : amount.movePointRight(2).longValue();
+    }
+}
@@ -0,0 +1,251 @@
+package com.sky.report;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.sky.dto.DailySalesDTO;
+import com.sky.dto.GoodsSalesDTO;
+import com.sky.mapper.DailyStatsMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.core.RedisOperations;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 每日畅销商品的Space-Saving摘要，保存在redis hash report:topk:{日期} 中，field为商品名称，value为销量
+ * 每天最多保留CAPACITY个商品，满了之后新商品替换销量最小的商品并继承其销量，
+ * 因此单日摘要中的销量是上界，商品种类不超过CAPACITY时是精确值
+ *
+ * 订单完成时累加当天的摘要；日期范围的排行由每天的摘要合并得到，不再关联订单表和明细表
+ * 被某一天的摘要替换掉的商品在当天按0计，合并后的销量可能偏小；只有在范围内每天都留在摘要中的商品，合并销量才是上界
+ * 摘要不存在时按每日商品销量表生成，每晚重算营业数据后整体覆盖
+ */
+@Component
+@Slf4j
+public class SalesTopK {
+
+    private static final String KEY_PREFIX = "report:topk:";
+    //标记摘要已生成，没有销量的日期也保留这个key
+    private static final String MARKER = "#";
+    private static final int CAPACITY = 100;
+    private static final long TTL_SECONDS = TimeUnit.DAYS.toSeconds(400);
+
+    //KEYS: 摘要  ARGV: 容量、商品名称、销量、商品名称、销量...  摘要不存在时不处理，由读取时生成
+    private static final DefaultRedisScript<Long> RECORD_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('exists', KEYS[1]) == 0 then return 0 end " +
+            "local capacity = tonumber(ARGV[1]) " +
+            "for i = 2, #ARGV, 2 do " +
+            "  local name, number = ARGV[i], tonumber(ARGV[i + 1]) " +
+            "  if redis.call('hexists', KEYS[1], name) == 1 then " +
+            "    redis.call('hincrby', KEYS[1], name, number) " +
+            "  elseif redis.call('hlen', KEYS[1]) - 1 < capacity then " +
+            "    redis.call('hset', KEYS[1], name, number) " +
+            "  else " +
+            "    local all = redis.call('hgetall', KEYS[1]) " +
+            "    local minName, minCount " +
+            "    for j = 1, #all, 2 do " +
+            "      local count = tonumber(all[j + 1]) " +
+            "      if all[j] ~= '" + MARKER + "' and (minCount == nil or count < minCount) then " +
+            "        minName, minCount = all[j], count " +
+            "      end " +
+            "    end " +
+            "    redis.call('hdel', KEYS[1], minName) " +
+            "    redis.call('hset', KEYS[1], name, minCount + number) " +
+            "  end " +
+            "end " +
+            "return 1", Long.class);
+
+    //KEYS: 摘要  ARGV: 过期时间(秒)、是否只在不存在时生成(1/0)、商品名称、销量...
+    private static final DefaultRedisScript<Long> BUILD_SCRIPT = new DefaultRedisScript<>(
+            "if ARGV[2] == '1' and redis.call('exists', KEYS[1]) == 1 then return 0 end " +
+            "redis.call('del', KEYS[1]) " +
+            "redis.call('hset', KEYS[1], '" + MARKER + "', 0) " +
+            "for i = 3, #ARGV, 2 do redis.call('hset', KEYS[1], ARGV[i], ARGV[i + 1]) end " +
+            "redis.call('expire', KEYS[1], ARGV[1]) " +
+            "return 1", Long.class);
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+    @Autowired
+    private DailyStatsMapper dailyStatsMapper;
+
+    //过去日期的摘要在本地保留一段时间，其他节点修改后最多延迟这么久可见
+    private final Cache<LocalDate, Map<String, Long>> pastDays = Caffeine.newBuilder()
+            .maximumSize(800)
+            .expireAfterWrite(Duration.ofMinutes(10))
+            .build();
+
+    /**
+     * 累加某一天的商品销量，当前事务提交后执行，没有事务时立即执行
+     * @param day 下单日期
+     * @param numberMap 商品名称 -> 销量
+     */
+    public void record(LocalDate day, Map<String, Integer> numberMap) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    doRecord(day, numberMap);
+                }
+            });
+        } else {
+            doRecord(day, numberMap);
+        }
+    }
+
+    private void doRecord(LocalDate day, Map<String, Integer> numberMap) {
+        List<String> args = new ArrayList<>();
+        args.add(String.valueOf(CAPACITY));
+        numberMap.forEach((name, number) -> {
+            args.add(name);
+            args.add(String.valueOf(number));
+        });
+        stringRedisTemplate.execute(RECORD_SCRIPT, List.of(key(day)), args.toArray());
+        pastDays.invalidate(day);
+    }
+
+    /**
+     * 按每日商品销量表重新生成某一天的摘要
+     * @param day
+     */
+    public void rebuild(LocalDate day) {
+        build(day, query(day, day).getOrDefault(day, List.of()), false);
+        pastDays.invalidate(day);
+    }
+
+    /**
+     * 日期范围内销量前n的商品，由每天的摘要合并得到
+     * @param begin
+     * @param end
+     * @param n
+     * @return 按销量降序
+     */
+    public List<GoodsSalesDTO> top(LocalDate begin, LocalDate end, int n) {
+        Map<String, Long> merged = new HashMap<>();
+        for (Map<String, Long> summary : summaries(begin, end)) {
+            summary.forEach((name, count) -> merged.merge(name, count, Long::sum));
+        }
+        return merged.entrySet().stream()
+                .sorted(Map.Entry.<String, Long>comparingByValue().reversed().thenComparing(Map.Entry.comparingByKey()))
+                .limit(n)
+                .map(entry -> new GoodsSalesDTO(entry.getKey(), entry.getValue().intValue()))
+                .toList();
+    }
+
+    // 读取每一天的摘要：过去的日期优先读本地，其余一次管道读取redis，不存在的日期按销量表生成
+    private List<Map<String, Long>> summaries(LocalDate begin, LocalDate end) {
+        LocalDate today = LocalDate.now();
+        Map<LocalDate, Map<String, Long>> result = new LinkedHashMap<>();
+        List<LocalDate> remoteDays = new ArrayList<>();
+        for (LocalDate day = begin; !day.isAfter(end) && !day.isAfter(today); day = day.plusDays(1)) {
+            Map<String, Long> local = day.isBefore(today) ? pastDays.getIfPresent(day) : null;
+            result.put(day, local);
+            if (local == null) {
+                remoteDays.add(day);
+            }
+        }
+        if (remoteDays.isEmpty()) {
+            return new ArrayList<>(result.values());
+        }
+
+        List<Object> entries = readAll(remoteDays);
+        LocalDate firstMissing = null;
+        LocalDate lastMissing = null;
+        for (int i = 0; i < remoteDays.size(); i++) {
+            LocalDate day = remoteDays.get(i);
+            Map<?, ?> hash = (Map<?, ?>) entries.get(i);
+            if (hash == null || hash.isEmpty()) {
+                firstMissing = firstMissing == null ? day : firstMissing;
+                lastMissing = day;
+                continue;
+            }
+            Map<String, Long> summary = new HashMap<>();
+            hash.forEach((name, count) -> {
+                if (!MARKER.equals(name)) {
+                    summary.put(name.toString(), Long.parseLong(count.toString()));
+                }
+            });
+            put(result, day, today, summary);
+        }
+
+        if (firstMissing != null) {
+            Map<LocalDate, List<DailySalesDTO>> salesMap = query(firstMissing, lastMissing);
+            for (LocalDate day : remoteDays) {
+                if (result.get(day) == null) {
+                    List<DailySalesDTO> sales = salesMap.getOrDefault(day, List.of());
+                    put(result, day, today, build(day, sales, true));
+                }
+            }
+        }
+        return new ArrayList<>(result.values());
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<Object> readAll(List<LocalDate> days) {
+        return stringRedisTemplate.executePipelined(new SessionCallback<Object>() {
+            @Override
+            public <K, V> Object execute(RedisOperations<K, V> operations) throws DataAccessException {
+                for (LocalDate day : days) {
+                    operations.opsForHash().entries((K) key(day));
+                }
+                return null;
+            }
+        });
+    }
+
+    private void put(Map<LocalDate, Map<String, Long>> result, LocalDate day, LocalDate today, Map<String, Long> summary) {
+        result.put(day, summary);
+        if (day.isBefore(today)) {
+            pastDays.put(day, summary);
+        }
+    }
+
+    // 取销量最高的CAPACITY个商品生成摘要
+    private Map<String, Long> build(LocalDate day, List<DailySalesDTO> sales, boolean onlyIfAbsent) {
+        Map<String, Long> summary = new HashMap<>();
+        List<String> args = new ArrayList<>();
+        args.add(String.valueOf(TTL_SECONDS));
+        args.add(onlyIfAbsent ? "1" : "0");
+        sales.stream()
+                .sorted(Comparator.comparing(DailySalesDTO::getNumber).reversed())
+                .limit(CAPACITY)
+                .forEach(sale -> {
+                    summary.put(sale.getName(), sale.getNumber().longValue());
+                    args.add(sale.getName());
+                    args.add(String.valueOf(sale.getNumber()));
+                });
+        stringRedisTemplate.execute(BUILD_SCRIPT, List.of(key(day)), args.toArray());
+        return summary;
+    }
+
+    private Map<LocalDate, List<DailySalesDTO>> query(LocalDate begin, LocalDate end) {
+        Map map = new HashMap();
+        map.put("begin", begin);
+        map.put("end", end);
+        List<DailySalesDTO> sales = dailyStatsMapper.getSalesByDateRange(map);
+        Map<LocalDate, List<DailySalesDTO>> salesMap = new HashMap<>();
+        for (DailySalesDTO sale : sales) {
+            salesMap.computeIfAbsent(sale.getStatDate(), day -> new ArrayList<>()).add(sale);
+        }
+        return salesMap;
+    }
+
+    private String key(LocalDate day) {
+        return KEY_PREFIX + day;
+    }
+}
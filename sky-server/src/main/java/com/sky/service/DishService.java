@@ -27,6 +27,13 @@ public interface DishService {
      */
     List<DishVO> listWithFlavor(Dish dish);
 
+    /**
+     * 根据id批量查询起售中的菜品和口味
+     * @param ids
+     * @return
+     */
+    List<DishVO> listWithFlavorByIds(List<Long> ids);
+
     void startOrStop(Integer status, Long id);
 
     List<Dish> list(Long categoryId);
@@ -0,0 +1,56 @@
+package com.sky.service;
+
+import com.sky.cache.MenuPayload;
+import com.sky.vo.MenuChangesVO;
+
+public interface MenuService {
+
+    /**
+     * 根据分类id查询起售中的菜品，返回序列化好的响应
+     * @param categoryId
+     * @return
+     */
+    MenuPayload getDishPayload(Long categoryId);
+
+    /**
+     * 重新查询数据库并覆盖缓存中的菜品
+     * @param categoryId
+     * @return
+     */
+    MenuPayload refreshDishPayload(Long categoryId);
+
+    /**
+     * 根据分类id查询起售中的套餐，返回序列化好的响应
+     * @param categoryId
+     * @return
+     */
+    MenuPayload getSetmealPayload(Long categoryId);
+
+    /**
+     * 重新查询数据库并覆盖缓存中的套餐
+     * @param categoryId
+     * @return
+     */
+    MenuPayload refreshSetmealPayload(Long categoryId);
+
+    /**
+     * 错误响应，与正常响应一样直接写出，格式为Result
+     * @param msg 错误信息
+     * @return
+     */
+    MenuPayload getErrorPayload(String msg);
+
+    /**
+     * 整份菜单快照：起售中的分类、菜品(含口味)、套餐
+     * @param version 菜单版本号
+     * @return
+     */
+    MenuPayload getSnapshotPayload(long version);
+
+    /**
+     * 查询指定版本之后变更的菜品和套餐
+     * @param since 客户端持有的版本号
+     * @return
+     */
+    MenuChangesVO getChanges(long since);
+}
@@ -33,6 +33,16 @@ public interface OrderService {
      */
     PageResult getHistoryOrders(Integer page, Integer pageSize, Integer status);
 
+    /**
+     * 历史订单游标分页
+     * @param pageSize
+     * @param status
+     * @param cursor 上一页返回的游标，第一页为空字符串
+     * @param withTotal 是否返回总数
+     * @return
+     */
+    PageResult getHistoryOrdersByCursor(Integer pageSize, Integer status, String cursor, Boolean withTotal);
+
     /**
      * 历史订单详情
      * @param id
@@ -59,6 +69,13 @@ public interface OrderService {
      */
     PageResult pageQuery(OrdersPageQueryDTO ordersPageQueryDTO);
 
+    /**
+     * 订单游标分页查询
+     * @param ordersPageQueryDTO
+     * @return
+     */
+    PageResult pageQueryByCursor(OrdersPageQueryDTO ordersPageQueryDTO);
+
     /**
      * 订单统计
      * @return
@@ -129,9 +146,16 @@ public interface OrderService {
      * 销量排名
      * @param begin
      * @param end
+     * @param exact 是否按订单明细精确统计，用于对账
      * @return
      */
-    SalesTop10ReportVO getSalesTop10(LocalDate begin, LocalDate end);
+    SalesTop10ReportVO getSalesTop10(LocalDate begin, LocalDate end, boolean exact);
 
-    void export(HttpServletResponse response);
+    /**
+     * 导出运营数据报表
+     * @param response
+     * @param begin 为空时默认为end之前29天
+     * @param end 为空时默认为昨天
+     */
+    void export(HttpServletResponse response, LocalDate begin, LocalDate end);
 }
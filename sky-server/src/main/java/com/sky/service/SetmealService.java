@@ -62,6 +62,13 @@ public interface SetmealService {
      */
     List<Setmeal> list(Setmeal setmeal);
 
+    /**
+     * 根据id批量查询起售中的套餐
+     * @param ids
+     * @return
+     */
+    List<Setmeal> listByIds(List<Long> ids);
+
     /**
      * 根据id查询菜品选项
      * @param id
@@ -1,5 +1,6 @@
 package com.sky.service;
 
+import com.sky.dto.ShoppingCartBatchDTO;
 import com.sky.dto.ShoppingCartDTO;
 import com.sky.entity.ShoppingCart;
 
@@ -13,4 +14,11 @@ public interface ShoppingCartService {
     void cleanShoppingCart();
 
     void subShoppingCart(ShoppingCartDTO shoppingCartDTO);
+
+    /**
+     * 批量修改购物车，全部成功或全部不生效
+     * @param shoppingCartBatchDTO
+     * @return 修改后的购物车
+     */
+    List<ShoppingCart> batchShoppingCart(ShoppingCartBatchDTO shoppingCartBatchDTO);
 }
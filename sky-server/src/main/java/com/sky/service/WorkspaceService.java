@@ -4,6 +4,7 @@ import com.sky.vo.BusinessDataVO;
 import com.sky.vo.DishOverViewVO;
 import com.sky.vo.OrderOverViewVO;
 import com.sky.vo.SetmealOverViewVO;
+import com.sky.vo.WorkspaceVO;
 import java.time.LocalDateTime;
 
 public interface WorkspaceService {
@@ -34,4 +35,12 @@ public interface WorkspaceService {
      */
     SetmealOverViewVO getSetmealOverView();
 
+    /**
+     * 查询工作台全部数据
+     * @param begin 运营数据的开始时间
+     * @param end 运营数据的结束时间
+     * @return
+     */
+    WorkspaceVO getWorkspace(LocalDateTime begin, LocalDateTime end);
+
 }
@@ -8,6 +8,7 @@ import com.sky.context.BaseContext;
 import com.sky.dto.CategoryDTO;
 import com.sky.dto.CategoryPageQueryDTO;
 import com.sky.entity.Category;
+import com.sky.event.MenuChangeEvent;
 import com.sky.exception.DeletionNotAllowedException;
 import com.sky.mapper.CategoryMapper;
 import com.sky.mapper.DishMapper;
@@ -17,6 +18,7 @@ import com.sky.service.CategoryService;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.BeanUtils;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import java.time.LocalDateTime;
 import java.util.List;
@@ -34,6 +36,8 @@ public class CategoryServiceImpl implements CategoryService {
     private DishMapper dishMapper;
     @Autowired
     private SetmealMapper setmealMapper;
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
 
     /**
      * 新增分类
@@ -48,6 +52,8 @@ public class CategoryServiceImpl implements CategoryService {
         category.setStatus(StatusConstant.DISABLE);
 
         categoryMapper.insert(category);
+
+        eventPublisher.publishEvent(MenuChangeEvent.category(category.getId()));
     }
 
     /**
@@ -83,6 +89,8 @@ public class CategoryServiceImpl implements CategoryService {
 
         //删除分类数据
         categoryMapper.deleteById(id);
+
+        eventPublisher.publishEvent(MenuChangeEvent.category(id));
     }
 
     /**
@@ -94,6 +102,8 @@ public class CategoryServiceImpl implements CategoryService {
         BeanUtils.copyProperties(categoryDTO,category);
 
         categoryMapper.update(category);
+
+        eventPublisher.publishEvent(MenuChangeEvent.category(category.getId()));
     }
 
     /**
@@ -109,6 +119,8 @@ public class CategoryServiceImpl implements CategoryService {
                 .updateUser(BaseContext.getCurrentId())
                 .build();
         categoryMapper.update(category);
+
+        eventPublisher.publishEvent(MenuChangeEvent.category(id));
     }
 
     /**
@@ -10,6 +10,7 @@ import com.sky.entity.Dish;
 import com.sky.entity.DishFlavor;
 import com.sky.entity.Setmeal;
 import com.sky.entity.SetmealDish;
+import com.sky.event.MenuChangeEvent;
 import com.sky.exception.DeletionNotAllowedException;
 import com.sky.mapper.DishFlavorMapper;
 import com.sky.mapper.DishMapper;
@@ -21,11 +22,16 @@ import com.sky.vo.DishVO;
 import net.bytebuddy.implementation.bytecode.Throw;
 import org.springframework.beans.BeanUtils;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
 
 @Service
 public class DishServiceImpl implements DishService {
@@ -37,6 +43,8 @@ public class DishServiceImpl implements DishService {
     private SetmealDishMapper setmealDishMapper;
     @Autowired
     private SetmealMapper setmealMapper;
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
 
     @Override
     public void saveWithFlavor(DishDTO dishDTO) {
@@ -52,12 +60,16 @@ public class DishServiceImpl implements DishService {
             });
             dishFlavorMapper.insertBatch(flavors);
         }
+
+        eventPublisher.publishEvent(MenuChangeEvent.dish(
+                Collections.singletonList(dish.getCategoryId()), Collections.singletonList(dishId)));
     }
 
     @Override
     public PageResult pageQuery(DishPageQueryDTO dishPageQueryDTO) {
         PageHelper.startPage(dishPageQueryDTO.getPage(), dishPageQueryDTO.getPageSize());
         Page<DishVO> page = dishMapper.pageQuery(dishPageQueryDTO);
+        fillFlavors(page.getResult());
         return new PageResult(page.getTotal(),page.getResult());
     }
 
@@ -76,30 +88,36 @@ public class DishServiceImpl implements DishService {
             throw new DeletionNotAllowedException(MessageConstant.DISH_BE_RELATED_BY_SETMEAL);
         }
 
+        // 记录菜品所属分类，用于清理缓存
+        List<Long> categoryIds = dishMapper.getCategoryIdsByIds(ids);
+
         // 删除菜品表中的菜品数据
         dishMapper.deleteBatch(ids);
 
         // 删除菜品关联的口味数据
         dishFlavorMapper.deleteByDishId(ids);
 
+        eventPublisher.publishEvent(MenuChangeEvent.dish(categoryIds, ids));
     }
 
     @Override
     public DishVO getByIdWithFlavor(Long id) {
         // 查询菜品数据
         Dish dish = dishMapper.getByOneId(id);
-        // 查询口味数据
-        List<DishFlavor> flavors = dishFlavorMapper.getById(id);
 
         DishVO dishVO = new DishVO();
         BeanUtils.copyProperties(dish,dishVO);
-        dishVO.setFlavors(flavors);
+        // 查询口味数据
+        fillFlavors(List.of(dishVO));
         return dishVO;
     }
 
     @Override
     @Transactional
     public void update(DishDTO dishDTO) {
+        // 修改前的分类，菜品可能被移到其他分类
+        Dish dishDB = dishMapper.getByOneId(dishDTO.getId());
+
         Dish dish = new Dish();
         BeanUtils.copyProperties(dishDTO,dish);
         dishMapper.update(dish);
@@ -115,6 +133,10 @@ public class DishServiceImpl implements DishService {
             });
             dishFlavorMapper.insertBatch(flavors);
         }
+
+        Long oldCategoryId = dishDB == null ? null : dishDB.getCategoryId();
+        eventPublisher.publishEvent(MenuChangeEvent.dish(
+                Arrays.asList(oldCategoryId, dishDTO.getCategoryId()), Collections.singletonList(dishDTO.getId())));
     }
 
     /**
@@ -130,17 +152,50 @@ public class DishServiceImpl implements DishService {
         for (Dish d : dishList) {
             DishVO dishVO = new DishVO();
             BeanUtils.copyProperties(d,dishVO);
+            dishVOList.add(dishVO);
+        }
 
-            //根据菜品id查询对应的口味
-            List<DishFlavor> flavors = dishFlavorMapper.getByDishId(d.getId());
+        //一次查询出所有菜品的口味
+        fillFlavors(dishVOList);
+        return dishVOList;
+    }
 
-            dishVO.setFlavors(flavors);
+    /**
+     * 根据id批量查询起售中的菜品和口味
+     * @param ids
+     * @return
+     */
+    public List<DishVO> listWithFlavorByIds(List<Long> ids) {
+        List<DishVO> dishVOList = new ArrayList<>();
+        if (ids == null || ids.isEmpty()) {
+            return dishVOList;
+        }
+        for (Dish d : dishMapper.getById(ids)) {
+            DishVO dishVO = new DishVO();
+            BeanUtils.copyProperties(d, dishVO);
             dishVOList.add(dishVO);
         }
 
+        fillFlavors(dishVOList);
         return dishVOList;
     }
 
+    /**
+     * 批量填充菜品口味：按菜品id一次IN查询，在内存中分组
+     * @param dishVOList
+     */
+    private void fillFlavors(List<DishVO> dishVOList) {
+        if (dishVOList == null || dishVOList.isEmpty()) {
+            return;
+        }
+        List<Long> dishIds = dishVOList.stream().map(DishVO::getId).toList();
+        Map<Long, List<DishFlavor>> flavorMap = dishFlavorMapper.getByDishIds(dishIds).stream()
+                .collect(Collectors.groupingBy(DishFlavor::getDishId));
+        for (DishVO dishVO : dishVOList) {
+            dishVO.setFlavors(flavorMap.getOrDefault(dishVO.getId(), new ArrayList<>()));
+        }
+    }
+
     /**
      * 菜品起售停售
      *
@@ -149,12 +204,19 @@ public class DishServiceImpl implements DishService {
      */
     @Transactional
     public void startOrStop(Integer status, Long id) {
+        Dish dishDB = dishMapper.getByOneId(id);
+
         Dish dish = Dish.builder()
                 .id(id)
                 .status(status)
                 .build();
         dishMapper.update(dish);
 
+        if (dishDB != null) {
+            eventPublisher.publishEvent(MenuChangeEvent.dish(
+                    Collections.singletonList(dishDB.getCategoryId()), Collections.singletonList(id)));
+        }
+
         if (status == StatusConstant.DISABLE) {
             // 如果是停售操作，还需要将包含当前菜品的套餐也停售
             List<Long> dishIds = new ArrayList<>();
@@ -169,6 +231,9 @@ public class DishServiceImpl implements DishService {
                             .build();
                     setmealMapper.update(setmeal);
                 }
+                // 被连带停售的套餐也需要清理缓存
+                List<Long> setmealCategoryIds = setmealMapper.getCategoryIdsByIds(setmealIds);
+                eventPublisher.publishEvent(MenuChangeEvent.setmeal(setmealCategoryIds, setmealIds));
             }
         }
     }
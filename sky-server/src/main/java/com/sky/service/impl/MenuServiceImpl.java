@@ -0,0 +1,159 @@
+package com.sky.service.impl;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sky.cache.MenuChangeLog;
+import com.sky.cache.MenuPayload;
+import com.sky.constant.CacheConstant;
+import com.sky.constant.StatusConstant;
+import com.sky.entity.Category;
+import com.sky.entity.Dish;
+import com.sky.entity.Setmeal;
+import com.sky.json.JacksonObjectMapper;
+import com.sky.result.Result;
+import com.sky.service.CategoryService;
+import com.sky.service.DishService;
+import com.sky.service.MenuService;
+import com.sky.service.SetmealService;
+import com.sky.vo.DishVO;
+import com.sky.vo.MenuChangesVO;
+import com.sky.vo.MenuSnapshotVO;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.annotation.CachePut;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * C端菜单查询，缓存最终的json字节，key为分类id，缓存代数即菜单版本
+ * 另外提供整份菜单快照和按版本号的增量变更
+ */
+@Service
+public class MenuServiceImpl implements MenuService {
+
+    //与mvc消息转换器使用同样的序列化规则
+    private final ObjectMapper objectMapper = new JacksonObjectMapper();
+
+    @Autowired
+    private DishService dishService;
+    @Autowired
+    private SetmealService setmealService;
+    @Autowired
+    private CategoryService categoryService;
+    @Autowired
+    private MenuChangeLog menuChangeLog;
+
+    @Cacheable(cacheNames = CacheConstant.DISH_CACHE, key = "#categoryId", sync = true)
+    public MenuPayload getDishPayload(Long categoryId) {
+        return buildDishPayload(categoryId);
+    }
+
+    @CachePut(cacheNames = CacheConstant.DISH_CACHE, key = "#categoryId")
+    public MenuPayload refreshDishPayload(Long categoryId) {
+        return buildDishPayload(categoryId);
+    }
+
+    @Cacheable(cacheNames = CacheConstant.SETMEAL_CACHE, key = "#categoryId", sync = true)
+    public MenuPayload getSetmealPayload(Long categoryId) {
+        return buildSetmealPayload(categoryId);
+    }
+
+    @CachePut(cacheNames = CacheConstant.SETMEAL_CACHE, key = "#categoryId")
+    public MenuPayload refreshSetmealPayload(Long categoryId) {
+        return buildSetmealPayload(categoryId);
+    }
+
+    public MenuPayload getErrorPayload(String msg) {
+        return toPayload(Result.error(msg), true);
+    }
+
+    /**
+     * 快照按版本号缓存，菜单变更后版本号加1，旧快照不再被访问
+     */
+    @Cacheable(cacheNames = CacheConstant.MENU_SNAPSHOT_CACHE, key = "#version", sync = true)
+    public MenuPayload getSnapshotPayload(long version) {
+        List<Category> categories = categoryService.list(null);
+        Set<Long> categoryIds = categories.stream().map(Category::getId).collect(Collectors.toSet());
+
+        Dish dish = new Dish();
+        dish.setStatus(StatusConstant.ENABLE);
+        List<DishVO> dishes = dishService.listWithFlavor(dish).stream()
+                .filter(d -> categoryIds.contains(d.getCategoryId()))
+                .toList();
+
+        Setmeal setmeal = new Setmeal();
+        setmeal.setStatus(StatusConstant.ENABLE);
+        List<Setmeal> setmeals = setmealService.list(setmeal).stream()
+                .filter(s -> categoryIds.contains(s.getCategoryId()))
+                .toList();
+
+        MenuSnapshotVO snapshot = MenuSnapshotVO.builder()
+                .version(version)
+                .categories(categories)
+                .dishes(dishes)
+                .setmeals(setmeals)
+                .build();
+        return toPayload(Result.success(snapshot), false);
+    }
+
+    public MenuChangesVO getChanges(long since) {
+        //先读版本号再读变更，返回的变更只会多不会少
+        long version = menuChangeLog.currentVersion();
+        MenuChangeLog.Changes changes = menuChangeLog.changesSince(since, version);
+        if (changes == null) {
+            return MenuChangesVO.builder()
+                    .version(version)
+                    .fullReload(true)
+                    .build();
+        }
+
+        List<DishVO> dishes = dishService.listWithFlavorByIds(changes.getDishIds());
+        Set<Long> dishIds = dishes.stream().map(DishVO::getId).collect(Collectors.toSet());
+        List<Setmeal> setmeals = setmealService.listByIds(changes.getSetmealIds());
+        Set<Long> setmealIds = setmeals.stream().map(Setmeal::getId).collect(Collectors.toSet());
+
+        return MenuChangesVO.builder()
+                .version(version)
+                .fullReload(false)
+                .categories(changes.getCategoryIds().isEmpty() ? null : categoryService.list(null))
+                .dishes(dishes)
+                .removedDishIds(changes.getDishIds().stream().filter(id -> !dishIds.contains(id)).toList())
+                .setmeals(setmeals)
+                .removedSetmealIds(changes.getSetmealIds().stream().filter(id -> !setmealIds.contains(id)).toList())
+                .build();
+    }
+
+    private MenuPayload buildDishPayload(Long categoryId) {
+        Dish dish = new Dish();
+        dish.setCategoryId(categoryId);
+        dish.setStatus(StatusConstant.ENABLE);//查询起售中的菜品
+
+        List<DishVO> list = dishService.listWithFlavor(dish);
+        return toPayload(list);
+    }
+
+    private MenuPayload buildSetmealPayload(Long categoryId) {
+        Setmeal setmeal = new Setmeal();
+        setmeal.setCategoryId(categoryId);
+        setmeal.setStatus(StatusConstant.ENABLE);
+
+        List<Setmeal> list = setmealService.list(setmeal);
+        return toPayload(list);
+    }
+
+    private MenuPayload toPayload(List<?> list) {
+        return toPayload(Result.success(list), list == null || list.isEmpty());
+    }
+
+    private MenuPayload toPayload(Result<?> result, boolean empty) {
+        try {
+            byte[] json = objectMapper.writeValueAsBytes(result);
+            return MenuPayload.of(json, empty);
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
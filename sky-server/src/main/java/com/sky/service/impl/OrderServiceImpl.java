@@ -3,44 +3,64 @@ package com.sky.service.impl;
 import com.alibaba.fastjson.JSONObject;
 import com.github.pagehelper.Page;
 import com.github.pagehelper.PageHelper;
+import com.sky.cart.ShoppingCartRepository;
 import com.sky.constant.MessageConstant;
 import com.sky.context.BaseContext;
+import com.sky.counter.OrderStatusCounter;
 import com.sky.dto.*;
 import com.sky.entity.*;
 import com.sky.exception.AddressBookBusinessException;
 import com.sky.exception.OrderBusinessException;
 import com.sky.exception.ShoppingCartBusinessException;
 import com.sky.mapper.*;
+import com.sky.order.OrderNumberGenerator;
+import com.sky.order.OrderPricing;
+import com.sky.order.OrderStateMachine;
+import com.sky.report.DailyReportCache;
+import com.sky.report.DailyStatsSeries;
+import com.sky.report.SalesTopK;
+import com.sky.result.CursorPageResult;
 import com.sky.result.PageResult;
 import com.sky.service.OrderService;
-import com.sky.service.WorkspaceService;
 import com.sky.utils.WeChatPayUtil;
 import com.sky.vo.*;
 import com.sky.websocket.WebSocketServer;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang.StringUtils;
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
 import org.apache.poi.xssf.usermodel.XSSFRow;
 import org.apache.poi.xssf.usermodel.XSSFSheet;
 import org.apache.poi.xssf.usermodel.XSSFWorkbook;
 import org.springframework.beans.BeanUtils;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.util.CollectionUtils;
+import org.springframework.util.DigestUtils;
+import org.springframework.util.StreamUtils;
 
 import javax.servlet.ServletOutputStream;
 import javax.servlet.http.HttpServletResponse;
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
+import java.util.Base64;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -54,7 +74,7 @@ public class OrderServiceImpl implements OrderService {
     @Autowired
     private AddressBookMapper addressBookMapper;
     @Autowired
-    private ShoppingCartMapper shoppingCartMapper;
+    private ShoppingCartRepository shoppingCartRepository;
     @Autowired
     private UserMapper userMapper;
     @Autowired
@@ -62,7 +82,37 @@ public class OrderServiceImpl implements OrderService {
     @Autowired
     private WebSocketServer webSocketServer;
     @Autowired
-    private WorkspaceService workspaceService;
+    private StringRedisTemplate stringRedisTemplate;
+    @Autowired
+    private OrderStatusCounter orderStatusCounter;
+    @Autowired
+    private DailyStatsMapper dailyStatsMapper;
+    @Autowired
+    private DailyReportCache dailyReportCache;
+    @Autowired
+    private SalesTopK salesTopK;
+    @Autowired
+    private OrderNumberGenerator orderNumberGenerator;
+    @Autowired
+    private OrderPricing orderPricing;
+    @Autowired
+    private OrderStateMachine orderStateMachine;
+
+    //游标分页的默认、最大每页条数
+    private static final int DEFAULT_CURSOR_PAGE_SIZE = 10;
+    private static final int MAX_CURSOR_PAGE_SIZE = 100;
+    //游标分页总数的缓存
+    private static final String ORDER_COUNT_KEY_PREFIX = "order:page-count:";
+    private static final long ORDER_COUNT_TTL_SECONDS = 60;
+
+    private static final String EXPORT_TEMPLATE = "template/运营数据报表模板.xlsx";
+    //明细数据从第8行开始，占用第2到第7列
+    private static final int EXPORT_DETAIL_FIRST_ROW = 7;
+    private static final int EXPORT_DETAIL_LAST_CELL = 6;
+    //SXSSF内存中保留的行数
+    private static final int EXPORT_ROW_WINDOW = 100;
+
+    private volatile byte[] exportTemplate;
 
     @Override
     @Transactional
@@ -74,40 +124,44 @@ public class OrderServiceImpl implements OrderService {
             throw new AddressBookBusinessException(MessageConstant.ADDRESS_BOOK_IS_NULL);
         }
         // 如果购物车的数据为空，则不能提交订单
-        ShoppingCart shoppingCart = new ShoppingCart();
-        shoppingCart.setUserId(BaseContext.getCurrentId());
-        List<ShoppingCart> list = shoppingCartMapper.list(shoppingCart);
+        List<ShoppingCart> list = shoppingCartRepository.list(BaseContext.getCurrentId());
         if (list == null || list.isEmpty()) {
             // 抛出业务异常
             throw new ShoppingCartBusinessException(MessageConstant.SHOPPING_CART_IS_NULL);
         }
+        // 按当前价格重新计价，与提交的金额不一致则不能下单
+        OrderPricing.Price price = orderPricing.price(list, ordersSubmitDTO.getPackAmount(), ordersSubmitDTO.getAmount());
 
         // 向订单表插入一条数据
         Orders orders = new Orders();
         BeanUtils.copyProperties(ordersSubmitDTO, orders);
+        orders.setAmount(price.getAmount());
+        orders.setPackAmount(price.getPackAmount());
         orders.setOrderTime(LocalDateTime.now());
         orders.setPayStatus(Orders.UN_PAID);
         orders.setStatus(Orders.PENDING_PAYMENT);
-        orders.setNumber(String.valueOf(System.currentTimeMillis()));
+        orders.setNumber(orderNumberGenerator.nextNumber());
         orders.setPhone(addressBook.getPhone());
         orders.setConsignee(addressBook.getConsignee());
         orders.setAddress(addressBook.getDetail());
         orders.setUserId(BaseContext.getCurrentId());
 
         orderMapper.insert(orders);
+        orderStateMachine.created(orders);
 
         // 向订单明细表插入多条数据
         List<OrderDetail> orderDetailList = new ArrayList<>();
-        for (ShoppingCart cart : list) {
+        for (int i = 0; i < list.size(); i++) {
             OrderDetail orderDetail = new OrderDetail();
-            BeanUtils.copyProperties(cart, orderDetail);
+            BeanUtils.copyProperties(list.get(i), orderDetail);
+            orderDetail.setAmount(price.getUnitAmounts().get(i));
             orderDetail.setOrderId(orders.getId());
             orderDetailList.add(orderDetail);
         }
         orderDetailMapper.insertBatch(orderDetailList);
 
         // 清空购物车数据
-        shoppingCartMapper.deleteByUserId(BaseContext.getCurrentId());
+        shoppingCartRepository.clear(BaseContext.getCurrentId());
 
         return OrderSubmitVO.builder()
                 .id(orders.getId())
@@ -153,14 +207,15 @@ public class OrderServiceImpl implements OrderService {
         Long userId = BaseContext.getCurrentId();
         // 根据订单号查询当前用户的订单
         Orders ordersDB = orderMapper.getByNumberAndUserId(outTradeNo, userId);
-        // 根据订单id更新订单的状态、支付方式、支付状态、结账时间
+        // 待付款的订单更新为待接单，同时修改支付状态、结账时间；重复的支付通知不再处理
         Orders orders = Orders.builder()
-                .id(ordersDB.getId())
-                .status(Orders.TO_BE_CONFIRMED)
                 .payStatus(Orders.PAID)
                 .checkoutTime(LocalDateTime.now())
                 .build();
-        orderMapper.update(orders);
+        if (!orderStateMachine.tryTransit(ordersDB, OrderStateMachine.Transition.PAY, orders)) {
+            log.info("订单已处理过支付通知，订单号:{}", outTradeNo);
+            return;
+        }
 
         Map map = new HashMap();
         map.put("type", 1);
@@ -187,22 +242,33 @@ public class OrderServiceImpl implements OrderService {
         ordersPageQueryDTO.setStatus(status);
         Page<Orders> page = orderMapper.pageQuery(ordersPageQueryDTO);
 
-        List<OrderVO> list = new ArrayList<>();
-        if (page != null && page.getTotal() > 0) {
-            for (Orders orders : page) {
-                Long orderId = orders.getId();// 订单id
+        List<OrderVO> list = page != null && page.getTotal() > 0 ? getHistoryOrderVOList(page.getResult()) : new ArrayList<>();
+        return new PageResult(page.getTotal(), list);
+    }
 
-                // 查询订单明细
-                List<OrderDetail> orderDetails = orderDetailMapper.getByOrderId(orderId);
+    /**
+     * 历史订单游标分页
+     *
+     * @param pageSize
+     * @param status
+     * @param cursor
+     * @param withTotal
+     * @return
+     */
+    @Override
+    public PageResult getHistoryOrdersByCursor(Integer pageSize, Integer status, String cursor, Boolean withTotal) {
+        OrdersPageQueryDTO ordersPageQueryDTO = new OrdersPageQueryDTO();
+        ordersPageQueryDTO.setPageSize(pageSize == null ? 0 : pageSize);
+        ordersPageQueryDTO.setUserId(BaseContext.getCurrentId());
+        ordersPageQueryDTO.setStatus(status);
+        ordersPageQueryDTO.setCursor(cursor);
+        ordersPageQueryDTO.setWithTotal(withTotal);
 
-                OrderVO orderVO = new OrderVO();
-                BeanUtils.copyProperties(orders, orderVO);
-                orderVO.setOrderDetailList(orderDetails);
+        List<Orders> ordersList = queryByCursor(ordersPageQueryDTO);
+        String nextCursor = nextCursor(ordersList, cursorPageSize(ordersPageQueryDTO));
 
-                list.add(orderVO);
-            }
-        }
-        return new PageResult(page.getTotal(), list);
+        List<OrderVO> list = getHistoryOrderVOList(ordersList);
+        return new CursorPageResult(countForCursor(ordersPageQueryDTO), list, nextCursor);
     }
 
     /**
@@ -225,19 +291,7 @@ public class OrderServiceImpl implements OrderService {
 
     @Override
     public void cancel(Long id) throws Exception {
-        // 根据id查询订单
-        Orders ordersDB = orderMapper.getById(id);
-        // 判断订单是否存在
-        if (ordersDB == null) {
-            throw new OrderBusinessException(MessageConstant.ORDER_NOT_FOUND);
-        }
-        // 判断订单状态，如果是待付款之后的状态则不能取消订单
-        if (ordersDB.getStatus() > 2) {
-            throw new OrderBusinessException(MessageConstant.ORDER_STATUS_ERROR);
-        }
-
         Orders orders = new Orders();
-        orders.setId(ordersDB.getId());
 
         // 订单处于待接单状态下取消，需要进行退款
         /*if (ordersDB.getStatus().equals(Orders.TO_BE_CONFIRMED)) {
@@ -246,11 +300,10 @@ public class OrderServiceImpl implements OrderService {
             orders.setPayStatus(Orders.REFUND);
         }*/
 
-        // 修改订单状态，订单状态改为取消状态
-        orders.setStatus(Orders.CANCELLED);
+        // 修改订单状态，只有待付款、待接单的订单可以取消
         orders.setCancelReason("用户取消");
         orders.setCancelTime(LocalDateTime.now());
-        orderMapper.update(orders);
+        orderStateMachine.transit(id, OrderStateMachine.Transition.USER_CANCEL, orders);
     }
 
     /**
@@ -270,13 +323,11 @@ public class OrderServiceImpl implements OrderService {
         List<ShoppingCart> shoppingCarts = orderDetails.stream().map(orderDetail -> {
             ShoppingCart shoppingCart = new ShoppingCart();
             BeanUtils.copyProperties(orderDetail, shoppingCart, "id");
-            shoppingCart.setUserId(userId);
-            shoppingCart.setCreateTime(LocalDateTime.now());
             return shoppingCart;
         }).collect(Collectors.toList());
 
-        // 将购物车对象批量添加到数据库
-        shoppingCartMapper.insertBatch(shoppingCarts);
+        // 将购物车对象批量加入购物车
+        shoppingCartRepository.addAll(userId, shoppingCarts);
     }
 
     @Override
@@ -290,6 +341,21 @@ public class OrderServiceImpl implements OrderService {
         return new PageResult(page.getTotal(), orderVOList);
     }
 
+    /**
+     * 订单游标分页查询
+     *
+     * @param ordersPageQueryDTO
+     * @return
+     */
+    @Override
+    public PageResult pageQueryByCursor(OrdersPageQueryDTO ordersPageQueryDTO) {
+        List<Orders> ordersList = queryByCursor(ordersPageQueryDTO);
+        String nextCursor = nextCursor(ordersList, cursorPageSize(ordersPageQueryDTO));
+
+        List<OrderVO> orderVOList = getOrderVOList(ordersList);
+        return new CursorPageResult(countForCursor(ordersPageQueryDTO), orderVOList, nextCursor);
+    }
+
     /**
      * 订单统计
      *
@@ -297,10 +363,12 @@ public class OrderServiceImpl implements OrderService {
      */
     @Override
     public OrderStatisticsVO statistics() {
-        // 根据状态，分别查询出待接单、待派送、派送中的订单数量
-        Integer toBeConfirmed = orderMapper.countStatus(Orders.TO_BE_CONFIRMED);
-        Integer confirmed = orderMapper.countStatus(Orders.CONFIRMED);
-        Integer deliveryInProgress = orderMapper.countStatus(Orders.DELIVERY_IN_PROGRESS);
+        // 根据状态，从redis计数器中一次读出待接单、待派送、派送中的订单数量
+        List<Integer> counts = orderStatusCounter.countByStatus(
+                Orders.TO_BE_CONFIRMED, Orders.CONFIRMED, Orders.DELIVERY_IN_PROGRESS);
+        Integer toBeConfirmed = counts.get(0);
+        Integer confirmed = counts.get(1);
+        Integer deliveryInProgress = counts.get(2);
 
         // 将查询出的数据封装到orderStatisticsVO中响应
         OrderStatisticsVO orderStatisticsVO = new OrderStatisticsVO();
@@ -317,11 +385,7 @@ public class OrderServiceImpl implements OrderService {
      */
     @Override
     public void confirm(OrdersConfirmDTO ordersConfirmDTO) {
-        Orders orders = Orders.builder()
-                .id(ordersConfirmDTO.getId())
-                .status(Orders.CONFIRMED)
-                .build();
-        orderMapper.update(orders);
+        orderStateMachine.transit(ordersConfirmDTO.getId(), OrderStateMachine.Transition.CONFIRM, null);
     }
 
     /**
@@ -331,25 +395,17 @@ public class OrderServiceImpl implements OrderService {
      */
     @Override
     public void rejection(OrdersRejectionDTO ordersRejectionDTO) throws Exception {
-        // 查询订单
-        Orders ordersDB = orderMapper.getById(ordersRejectionDTO.getId());
-        // 判断订单是否存在并且订单的状态为待接单,否则抛出异常
-        if (ordersDB == null || !ordersDB.getStatus().equals(Orders.TO_BE_CONFIRMED)) {
-            throw new OrderBusinessException(MessageConstant.ORDER_NOT_FOUND);
-        }
         // 查看订单是否付款了,如果付款则申请退款
         /*if (ordersDB.getPayStatus().equals(Orders.PAID)) {
             // 如果是已付款，则调用微信的退款接口
             String refund = weChatPayUtil.refund(ordersDB.getNumber(), ordersDB.getNumber(), new BigDecimal(0.01), new BigDecimal(0.01));
             log.info("申请退款成功，结果：{}", refund);
         }*/
-        // 更改订单状态
+        // 更改订单状态，只有待接单的订单可以拒单
         Orders orders = new Orders();
-        orders.setId(ordersRejectionDTO.getId());
-        orders.setStatus(Orders.CANCELLED);
         orders.setRejectionReason(ordersRejectionDTO.getRejectionReason());
         orders.setCancelTime(LocalDateTime.now());
-        orderMapper.update(orders);
+        orderStateMachine.transit(ordersRejectionDTO.getId(), OrderStateMachine.Transition.REJECT, orders);
     }
 
     /**
@@ -359,53 +415,31 @@ public class OrderServiceImpl implements OrderService {
      */
     @Override
     public void AdminCancel(OrdersRejectionDTO ordersRejectionDTO) {
-        Orders ordersDB = orderMapper.getById(ordersRejectionDTO.getId());
-        if (ordersDB == null) {
-            throw new OrderBusinessException(MessageConstant.ORDER_NOT_FOUND);
-        }
         /*if(ordersDB.getPayStatus().equals(Orders.PAID)){
             String refund = weChatPayUtil.refund(ordersDB.getNumber(), ordersDB.getNumber(), new BigDecimal(0.01), new BigDecimal(0.01));
             log.info("申请退款成功，结果：{}", refund);
         }*/
+        // 已完成、已取消的订单不能再取消
         Orders orders = new Orders();
-        orders.setId(ordersRejectionDTO.getId());
-        orders.setStatus(Orders.CANCELLED);
         orders.setCancelReason(ordersRejectionDTO.getRejectionReason());
         orders.setCancelTime(LocalDateTime.now());
-        orderMapper.update(orders);
+        orderStateMachine.transit(ordersRejectionDTO.getId(), OrderStateMachine.Transition.ADMIN_CANCEL, orders);
     }
 
     // 派送订单
     @Override
     public void delivery(Long id) {
-        Orders ordersDB = orderMapper.getById(id);
-        if (ordersDB == null || !ordersDB.getStatus().equals(Orders.CONFIRMED)) {
-            throw new OrderBusinessException(MessageConstant.ORDER_STATUS_ERROR);
-        }
-        Orders orders = new Orders();
-        orders.setId(id);
-        orders.setStatus(Orders.DELIVERY_IN_PROGRESS);
-        orderMapper.update(orders);
+        // 只有已接单的订单可以派送
+        orderStateMachine.transit(id, OrderStateMachine.Transition.DELIVER, null);
     }
 
     // 完成订单
     @Override
     public void complete(Long id) {
-        // 根据id查询订单
-        Orders ordersDB = orderMapper.getById(id);
-
-        // 校验订单是否存在，并且状态为4
-        if (ordersDB == null || !ordersDB.getStatus().equals(Orders.DELIVERY_IN_PROGRESS)) {
-            throw new OrderBusinessException(MessageConstant.ORDER_STATUS_ERROR);
-        }
-
+        // 派送中的订单状态转为完成
         Orders orders = new Orders();
-        orders.setId(ordersDB.getId());
-        // 更新订单状态,状态转为完成
-        orders.setStatus(Orders.COMPLETED);
         orders.setDeliveryTime(LocalDateTime.now());
-
-        orderMapper.update(orders);
+        orderStateMachine.transit(id, OrderStateMachine.Transition.COMPLETE, orders);
     }
 
     // 催单
@@ -433,64 +467,10 @@ public class OrderServiceImpl implements OrderService {
      */
     @Override
     public TurnoverReportVO turnoverStatistics(LocalDate begin, LocalDate end) {
-        /*// 新建dateList集合
-        List<LocalDate> dateList = new ArrayList<>();
-        // 循环添加到dateList中
-        while (!begin.isAfter(end)) {
-            dateList.add(begin);
-            begin = begin.plusDays(1);
-        }
-        // 创建一个turnoverList集合
-        List<Double> turnoverList = new ArrayList<>();
-        // 循环遍历dateList集合
-        for (LocalDate date : dateList) {
-            // 为date添加时分秒
-            LocalDateTime beginTime = LocalDateTime.of(date, LocalTime.MIN);
-            LocalDateTime endTime = LocalDateTime.of(date, LocalTime.MAX);
-            // 将参数都添加到map中
-            Map map = new HashMap();
-            map.put("endTime", endTime);
-            map.put("beginTime", beginTime);
-            map.put("status", Orders.COMPLETED);
-            Double turnover = orderMapper.sumByMap(map);
-            turnoverList.add(turnover == null ? 0.0 : turnover);
-        }
-        return TurnoverReportVO.builder().dateList(StringUtils.join(dateList, ",")).turnoverList(StringUtils.join(turnoverList, ",")).build();*/
-
-        // 新建dateList集合
-        List<LocalDate> dateList = new ArrayList<>();
-        // 循环添加到dateList中
-        while (!begin.isAfter(end)) {
-            dateList.add(begin);
-            begin = begin.plusDays(1);
-        }
-        Map map = new HashMap();
-        map.put("endTime", LocalDateTime.of(dateList.get(dateList.size() - 1), LocalTime.MAX));
-        map.put("beginTime", LocalDateTime.of(dateList.get(0), LocalTime.MIN));
-        map.put("status", Orders.COMPLETED);
-        // 查询指定日期范围内的所有订单数据
-        List<Orders> ordersList = orderMapper.getOrdersByDateRange(map);
-
-        // 使用 Map 按日期分组
-        Map<LocalDate, List<Orders>> ordersByDateMap = ordersList.stream()
-                .collect(Collectors.groupingBy(order -> order.getOrderTime().toLocalDate()));
-
-        // 创建一个turnoverList集合
-        List<Double> turnoverList = new ArrayList<>();
-
-        // 计算每日营业额
-        for (LocalDate date : dateList) {
-            List<Orders> ordersForDate = ordersByDateMap.getOrDefault(date, new ArrayList<>());
-            Double totalTurnover = ordersForDate.stream()
-                    .mapToDouble(order -> order.getAmount().doubleValue())
-                    .sum();
-            turnoverList.add(totalTurnover);
-        }
-
-        // 构建 TurnoverReportVO
+        DailyStatsSeries series = loadDailyStats(begin, end);
         return TurnoverReportVO.builder()
-                .dateList(String.join(",", dateList.stream().map(LocalDate::toString).collect(Collectors.toList())))
-                .turnoverList(String.join(",", turnoverList.stream().map(String::valueOf).collect(Collectors.toList())))
+                .dateList(series.joinDates())
+                .turnoverList(series.joinTurnover())
                 .build();
     }
 
@@ -503,33 +483,18 @@ public class OrderServiceImpl implements OrderService {
      */
     @Override
     public UserReportVO userStatistics(LocalDate begin, LocalDate end) {
-        List<LocalDate> list = new ArrayList<>();
-        while (!begin.isAfter(end)) {
-            list.add(begin);
-            begin = begin.plusDays(1);
-        }
-        // 创建一个map集合,用于查询该时间段内的所有用户
-        Map map = new HashMap();
-        map.put("endTime", LocalDateTime.of(list.get(list.size() - 1), LocalTime.MAX));
-        map.put("beginTime", LocalDateTime.of(list.get(0), LocalTime.MIN));
-        List<User> userList = userMapper.getByMap(map);
-        List<Integer> totalUserList = new ArrayList<>();
-        List<Integer> newUserList = new ArrayList<>();
-        for (LocalDate date : list) {
-            // 获取该日期下新增用户的数量
-            Integer newUsers = userList.stream()
-                    .filter(user -> user.getCreateTime().toLocalDate().equals(date))
-                    .map(User::getId)
-                    .toList()
-                    .size();
-            // 获取该日期下总用户的数量
-            Integer totalUsers = userList.stream()
-                    .filter(user -> user.getCreateTime().toLocalDate().isBefore(date))
-                    .map(User::getId).toList().size();
-            totalUserList.add(totalUsers);
-            newUserList.add(newUsers);
+        DailyStatsSeries series = loadDailyStats(begin, end);
+        // begin之前的用户总数作为基数，再按天累加每日新增，得到截至当天的用户总数
+        long totalUsers = dailyStatsMapper.sumNewUsersBefore(begin);
+        StringBuilder totalUserList = new StringBuilder();
+        for (int i = 0; i < series.getDays(); i++) {
+            totalUsers += series.getNewUsers(i);
+            if (i > 0) {
+                totalUserList.append(',');
+            }
+            totalUserList.append(totalUsers);
         }
-        return UserReportVO.builder().dateList(StringUtils.join(list, ",")).newUserList(StringUtils.join(newUserList, ",")).totalUserList(StringUtils.join(totalUserList, ",")).build();
+        return UserReportVO.builder().dateList(series.joinDates()).newUserList(series.joinNewUsers()).totalUserList(totalUserList.toString()).build();
     }
 
     /**
@@ -541,43 +506,17 @@ public class OrderServiceImpl implements OrderService {
      */
     @Override
     public OrderReportVO ordersStatistics(LocalDate begin, LocalDate end) {
-        List<LocalDate> dateList = new ArrayList<>();
-        // 循环添加到dateList中
-        while (!begin.isAfter(end)) {
-            dateList.add(begin);
-            begin = begin.plusDays(1);
-        }
-        Map map = new HashMap();
-        map.put("endTime", LocalDateTime.of(dateList.get(dateList.size() - 1), LocalTime.MAX));
-        map.put("beginTime", LocalDateTime.of(dateList.get(0), LocalTime.MIN));
-        // 查询指定日期范围内的所有订单数据
-        List<Orders> ordersList = orderMapper.getOrdersByDateRange(map);
-        // 统计每日的订单数量,不考虑订单状态
-        List<Long> orderCountList = dateList.stream().map(date -> {
-            return ordersList.stream()
-                    .filter(order -> order.getOrderTime().toLocalDate().equals(date))
-                    .count();
-        }).toList();
-        // 统计每日的订单数量,只考虑已完成的订单
-        List<Long> validOrderCountList = dateList.stream().map(date -> {
-            return ordersList.stream()
-                    .filter(order -> order.getOrderTime().toLocalDate().equals(date) && order.getStatus().equals(Orders.COMPLETED))
-                    .count();
-        }).toList();
-        // 统计该时间段内的订单总数,不考虑订单状态
-        int totalOrderCount = ordersList.size();
-        // 统计该时间段内的订单总数,只考虑已完成的订单
-        int validOrderCount = ordersList.stream()
-                .filter(order -> order.getStatus().equals(Orders.COMPLETED))
-                .toList().size();
+        DailyStatsSeries series = loadDailyStats(begin, end);
+        int totalOrderCount = (int) series.sumTotalOrders();
+        int validOrderCount = (int) series.sumValidOrders();
         Double orderCompletionRate = 0.0;
         // 订单完成率
         if (totalOrderCount != 0) {
             orderCompletionRate = (double) validOrderCount / (double) totalOrderCount;
         }
         return OrderReportVO.builder().totalOrderCount(totalOrderCount).validOrderCount(validOrderCount)
-                .orderCompletionRate(orderCompletionRate).dateList(StringUtils.join(dateList, ","))
-                .orderCountList(StringUtils.join(orderCountList, ",")).validOrderCountList(StringUtils.join(validOrderCountList, ",")).build();
+                .orderCompletionRate(orderCompletionRate).dateList(series.joinDates())
+                .orderCountList(series.joinTotalOrders()).validOrderCountList(series.joinValidOrders()).build();
     }
 
     /**
@@ -588,32 +527,44 @@ public class OrderServiceImpl implements OrderService {
      * @return
      */
     @Override
-    public SalesTop10ReportVO getSalesTop10(LocalDate begin, LocalDate end) {
-        Map map = new HashMap();
-        map.put("endTime", LocalDateTime.of(end, LocalTime.MAX));
-        map.put("beginTime", LocalDateTime.of(begin, LocalTime.MIN));
-        map.put("status", Orders.COMPLETED);
-        List<GoodsSalesDTO> salesTop10 = orderMapper.getSalesTop10(map);
+    public SalesTop10ReportVO getSalesTop10(LocalDate begin, LocalDate end, boolean exact) {
+        List<GoodsSalesDTO> salesTop10;
+        if (exact) {
+            // 精确模式：关联订单表和明细表统计
+            Map map = new HashMap();
+            map.put("endTime", LocalDateTime.of(end, LocalTime.MAX));
+            map.put("beginTime", LocalDateTime.of(begin, LocalTime.MIN));
+            salesTop10 = orderMapper.getSalesTop10(map);
+        } else {
+            // 合并每天的畅销商品摘要
+            salesTop10 = salesTopK.top(begin, end, 10);
+        }
         List<String> names = salesTop10.stream().map(GoodsSalesDTO::getName).toList();
         List<Integer> numbers = salesTop10.stream().map(GoodsSalesDTO::getNumber).toList();
         return SalesTop10ReportVO.builder().nameList(StringUtils.join(names, ",")).numberList(StringUtils.join(numbers, ",")).build();
     }
 
     @Override
-    public void export(HttpServletResponse response) {
-        // 获取30天前的日期
-        LocalDateTime begin = LocalDateTime.of(LocalDate.now().minusDays(30), LocalTime.MIN);
-        // 获取昨天的日期
-        LocalDateTime end = LocalDateTime.of(LocalDate.now().minusDays(1), LocalTime.MAX);
-        // 获取数据
-        BusinessDataVO businessData = workspaceService.getBusinessData(begin, end);
-        // 获取xlsx模板文件
-        InputStream resourceAsStream = this.getClass().getClassLoader().getResourceAsStream("template/运营数据报表模板.xlsx");
-        // 创建xlsx文件
+    public void export(HttpServletResponse response, LocalDate begin, LocalDate end) {
+        // 默认导出最近30天，截止到昨天
+        if (end == null) {
+            end = LocalDate.now().minusDays(1);
+        }
+        if (begin == null) {
+            begin = end.minusDays(29);
+        }
+        if (begin.isAfter(end)) {
+            throw new OrderBusinessException(MessageConstant.DATE_RANGE_INVALID);
+        }
+        // 一次取出整个日期范围的每日数据
+        DailyStatsSeries series = loadDailyStats(begin, end);
+        BusinessDataVO businessData = series.totalBusinessData();
+
+        SXSSFWorkbook excel = null;
         try {
-            XSSFWorkbook excel = new XSSFWorkbook(resourceAsStream);
-            XSSFSheet sheetAt = excel.getSheetAt(0);
-            sheetAt.getRow(1).getCell(1).setCellValue("时间:"+begin.toLocalDate()+"~"+end.toLocalDate());
+            XSSFWorkbook template = new XSSFWorkbook(new ByteArrayInputStream(getExportTemplate()));
+            XSSFSheet sheetAt = template.getSheetAt(0);
+            sheetAt.getRow(1).getCell(1).setCellValue("时间:" + begin + "~" + end);
 
             XSSFRow row = sheetAt.getRow(3);
             row.getCell(2).setCellValue(businessData.getTurnover());
@@ -624,40 +575,87 @@ public class OrderServiceImpl implements OrderService {
             row.getCell(2).setCellValue(businessData.getValidOrderCount());
             row.getCell(4).setCellValue(businessData.getUnitPrice());
 
-            // 填充明细数据
-            for (int i = 0; i < 30; i++) {
-                LocalDate date = begin.toLocalDate().plusDays(i);
-                BusinessDataVO businessData1 = workspaceService.getBusinessData(LocalDateTime.of(date, LocalTime.MIN), LocalDateTime.of(date, LocalTime.MAX));
-                row = sheetAt.getRow(7 + i);
-                row.getCell(1).setCellValue(date.toString());
-                row.getCell(2).setCellValue(businessData1.getTurnover());
-                row.getCell(3).setCellValue(businessData1.getValidOrderCount());
-                row.getCell(4).setCellValue(businessData1.getOrderCompletionRate());
-                row.getCell(5).setCellValue(businessData1.getUnitPrice());
-                row.getCell(6).setCellValue(businessData1.getNewUsers());
+            // 明细行沿用模板第一行明细的样式，删除模板中的明细行后由SXSSF逐行写出，内存中只保留窗口内的行
+            XSSFRow styleRow = sheetAt.getRow(EXPORT_DETAIL_FIRST_ROW);
+            short height = styleRow.getHeight();
+            CellStyle[] styles = new CellStyle[EXPORT_DETAIL_LAST_CELL + 1];
+            for (int c = 1; c <= EXPORT_DETAIL_LAST_CELL; c++) {
+                if (styleRow.getCell(c) != null) {
+                    styles[c] = styleRow.getCell(c).getCellStyle();
+                }
+            }
+            for (int r = sheetAt.getLastRowNum(); r >= EXPORT_DETAIL_FIRST_ROW; r--) {
+                if (sheetAt.getRow(r) != null) {
+                    sheetAt.removeRow(sheetAt.getRow(r));
+                }
+            }
+
+            excel = new SXSSFWorkbook(template, EXPORT_ROW_WINDOW);
+            Sheet sheet = excel.getSheetAt(0);
+            for (int i = 0; i < series.getDays(); i++) {
+                BusinessDataVO dayData = series.businessData(i);
+                Row detailRow = sheet.createRow(EXPORT_DETAIL_FIRST_ROW + i);
+                detailRow.setHeight(height);
+                createCell(detailRow, 1, styles).setCellValue(series.getDate(i).toString());
+                createCell(detailRow, 2, styles).setCellValue(dayData.getTurnover());
+                createCell(detailRow, 3, styles).setCellValue(dayData.getValidOrderCount());
+                createCell(detailRow, 4, styles).setCellValue(dayData.getOrderCompletionRate());
+                createCell(detailRow, 5, styles).setCellValue(dayData.getUnitPrice());
+                createCell(detailRow, 6, styles).setCellValue(dayData.getNewUsers());
             }
 
+            response.setContentType("application/vnd.openxmlformats-officedocument.spreadsheetml.sheet");
             ServletOutputStream outputStream = response.getOutputStream();
             excel.write(outputStream);
-
-            outputStream.close();
-            excel.close();
-
+            outputStream.flush();
         } catch (IOException e) {
             throw new RuntimeException(e);
+        } finally {
+            if (excel != null) {
+                // 删除写出过程中产生的临时文件
+                excel.dispose();
+            }
+        }
+    }
+
+    // 读取每日营业数据，按天累加到数组中，过去的日期从缓存读取
+    private DailyStatsSeries loadDailyStats(LocalDate begin, LocalDate end) {
+        DailyStatsSeries series = new DailyStatsSeries(begin, end);
+        dailyReportCache.getStats(begin, end).forEach(series::add);
+        return series;
+    }
+
+    // 报表模板只读取一次，每次导出基于模板内容新建工作簿
+    private byte[] getExportTemplate() throws IOException {
+        byte[] template = exportTemplate;
+        if (template == null) {
+            try (InputStream in = this.getClass().getClassLoader().getResourceAsStream(EXPORT_TEMPLATE)) {
+                template = StreamUtils.copyToByteArray(in);
+            }
+            exportTemplate = template;
+        }
+        return template;
+    }
+
+    private Cell createCell(Row row, int column, CellStyle[] styles) {
+        Cell cell = row.createCell(column);
+        if (styles[column] != null) {
+            cell.setCellStyle(styles[column]);
         }
+        return cell;
     }
 
     // 查询订单详情
-    private List<OrderVO> getOrderVOList(Page<Orders> page) {
+    private List<OrderVO> getOrderVOList(List<Orders> result) {
         List<OrderVO> orderVOList = new ArrayList<>();
-        // 创建一个orderVO对象
-        List<Orders> result = page.getResult();
         if (!CollectionUtils.isEmpty(result)) {
+            // 一次查询出本页所有订单的明细，拼接时复用同一个StringBuilder
+            Map<Long, List<OrderDetail>> orderDetailMap = getOrderDetailMap(result);
+            StringBuilder sb = new StringBuilder();
             for (Orders orders : result) {
                 OrderVO orderVO = new OrderVO();
                 BeanUtils.copyProperties(orders, orderVO);
-                String orderDishes = getOrderDishesStr(orders);
+                String orderDishes = getOrderDishesStr(orderDetailMap.get(orders.getId()), sb);
                 orderVO.setOrderDishes(orderDishes);
                 orderVOList.add(orderVO);
             }
@@ -665,13 +663,100 @@ public class OrderServiceImpl implements OrderService {
         return orderVOList;
     }
 
+    // 历史订单：一次查询出所有订单的明细
+    private List<OrderVO> getHistoryOrderVOList(List<Orders> ordersList) {
+        Map<Long, List<OrderDetail>> orderDetailMap = getOrderDetailMap(ordersList);
+        List<OrderVO> list = new ArrayList<>();
+        for (Orders orders : ordersList) {
+            OrderVO orderVO = new OrderVO();
+            BeanUtils.copyProperties(orders, orderVO);
+            orderVO.setOrderDetailList(orderDetailMap.getOrDefault(orders.getId(), new ArrayList<>()));
+            list.add(orderVO);
+        }
+        return list;
+    }
+
+    // 游标分页每页条数
+    private int cursorPageSize(OrdersPageQueryDTO ordersPageQueryDTO) {
+        int pageSize = ordersPageQueryDTO.getPageSize();
+        if (pageSize <= 0) {
+            return DEFAULT_CURSOR_PAGE_SIZE;
+        }
+        return Math.min(pageSize, MAX_CURSOR_PAGE_SIZE);
+    }
+
+    // 按游标查询，多查一条用于判断是否还有下一页
+    private List<Orders> queryByCursor(OrdersPageQueryDTO ordersPageQueryDTO) {
+        Map<String, Object> map = new HashMap<>();
+        map.put("number", ordersPageQueryDTO.getNumber());
+        map.put("phone", ordersPageQueryDTO.getPhone());
+        map.put("status", ordersPageQueryDTO.getStatus());
+        map.put("userId", ordersPageQueryDTO.getUserId());
+        map.put("beginTime", ordersPageQueryDTO.getBeginTime());
+        map.put("endTime", ordersPageQueryDTO.getEndTime());
+        map.put("limit", cursorPageSize(ordersPageQueryDTO) + 1);
+
+        String cursor = ordersPageQueryDTO.getCursor();
+        if (StringUtils.isNotEmpty(cursor)) {
+            try {
+                String[] parts = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split(",");
+                map.put("cursorTime", LocalDateTime.parse(parts[0]));
+                map.put("cursorId", Long.valueOf(parts[1]));
+            } catch (Exception e) {
+                throw new OrderBusinessException(MessageConstant.CURSOR_INVALID);
+            }
+        }
+        return orderMapper.pageQueryByCursor(map);
+    }
+
+    // 去掉多查的一条，返回下一页的游标
+    private String nextCursor(List<Orders> ordersList, int pageSize) {
+        if (ordersList.size() <= pageSize) {
+            return null;
+        }
+        ordersList.subList(pageSize, ordersList.size()).clear();
+        Orders last = ordersList.get(pageSize - 1);
+        String cursor = last.getOrderTime() + "," + last.getId();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(cursor.getBytes(StandardCharsets.UTF_8));
+    }
+
+    // 游标分页的总数，按查询条件缓存一段时间，不需要时返回-1
+    private long countForCursor(OrdersPageQueryDTO ordersPageQueryDTO) {
+        if (!Boolean.TRUE.equals(ordersPageQueryDTO.getWithTotal())) {
+            return -1;
+        }
+        String condition = ordersPageQueryDTO.getNumber() + "|" + ordersPageQueryDTO.getPhone() + "|"
+                + ordersPageQueryDTO.getStatus() + "|" + ordersPageQueryDTO.getUserId() + "|"
+                + ordersPageQueryDTO.getBeginTime() + "|" + ordersPageQueryDTO.getEndTime();
+        String key = ORDER_COUNT_KEY_PREFIX + DigestUtils.md5DigestAsHex(condition.getBytes(StandardCharsets.UTF_8));
+        String cached = stringRedisTemplate.opsForValue().get(key);
+        if (cached != null) {
+            return Long.parseLong(cached);
+        }
+        Long total = orderMapper.countByCondition(ordersPageQueryDTO);
+        long count = total == null ? 0 : total;
+        stringRedisTemplate.opsForValue().set(key, String.valueOf(count), ORDER_COUNT_TTL_SECONDS, TimeUnit.SECONDS);
+        return count;
+    }
+
+    // 批量查询订单明细，按订单id分组
+    private Map<Long, List<OrderDetail>> getOrderDetailMap(List<Orders> ordersList) {
+        if (CollectionUtils.isEmpty(ordersList)) {
+            return new HashMap<>();
+        }
+        List<Long> orderIds = ordersList.stream().map(Orders::getId).collect(Collectors.toList());
+        return orderDetailMapper.getByOrderIds(orderIds).stream()
+                .collect(Collectors.groupingBy(OrderDetail::getOrderId));
+    }
 
     // 拼接订单菜品信息
-    private String getOrderDishesStr(Orders orders) {
-        List<OrderDetail> orderDetailList = orderDetailMapper.getByOrderId(orders.getId());
-        List<String> collectList = orderDetailList.stream().map(orderDetail -> {
-            return orderDetail.getName() + "*" + orderDetail.getNumber() + ";";
-        }).collect(Collectors.toList());
-        return String.join("", collectList);
+    private String getOrderDishesStr(List<OrderDetail> orderDetailList, StringBuilder sb) {
+        sb.setLength(0);
+        if (orderDetailList != null) {
+            for (OrderDetail orderDetail : orderDetailList) {
+                sb.append(orderDetail.getName()).append('*').append(orderDetail.getNumber()).append(';');
+            }
+        }
+        return sb.toString();
     }
 }
@@ -9,6 +9,7 @@ import com.sky.dto.SetmealPageQueryDTO;
 import com.sky.entity.Dish;
 import com.sky.entity.Setmeal;
 import com.sky.entity.SetmealDish;
+import com.sky.event.MenuChangeEvent;
 import com.sky.exception.DeletionNotAllowedException;
 import com.sky.exception.SetmealEnableFailedException;
 import com.sky.mapper.DishMapper;
@@ -20,9 +21,13 @@ import com.sky.vo.DishItemVO;
 import com.sky.vo.SetmealVO;
 import org.springframework.beans.BeanUtils;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 
 @Service
@@ -33,6 +38,8 @@ public class SetmealServiceImpl implements SetmealService {
     private SetmealDishMapper setmealDishMapper;
     @Autowired
     private DishMapper dishMapper;
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
 
     /**
      * 新增套餐，同时需要保存套餐和菜品的关联关系
@@ -57,6 +64,9 @@ public class SetmealServiceImpl implements SetmealService {
 
         //保存套餐和菜品的关联关系
         setmealDishMapper.insertBatch(setmealDishes);
+
+        eventPublisher.publishEvent(MenuChangeEvent.setmeal(
+                Collections.singletonList(setmeal.getCategoryId()), Collections.singletonList(setmealId)));
     }
 
     /**
@@ -81,12 +91,14 @@ public class SetmealServiceImpl implements SetmealService {
      */
     @Transactional
     public void deleteBatch(List<Long> ids) {
+        List<Long> categoryIds = new ArrayList<>();
         ids.forEach(id -> {
             Setmeal setmeal = setmealMapper.getById(id);
             if (StatusConstant.ENABLE == setmeal.getStatus()) {
                 //起售中的套餐不能删除
                 throw new DeletionNotAllowedException(MessageConstant.SETMEAL_ON_SALE);
             }
+            categoryIds.add(setmeal.getCategoryId());
         });
 
         ids.forEach(setmealId -> {
@@ -95,6 +107,8 @@ public class SetmealServiceImpl implements SetmealService {
             //删除套餐菜品关系表中的数据
             setmealDishMapper.deleteBySetmealId(setmealId);
         });
+
+        eventPublisher.publishEvent(MenuChangeEvent.setmeal(categoryIds, ids));
     }
 
     /**
@@ -115,6 +129,9 @@ public class SetmealServiceImpl implements SetmealService {
      */
     @Transactional
     public void update(SetmealDTO setmealDTO) {
+        //修改前的分类，套餐可能被移到其他分类
+        Setmeal setmealDB = setmealMapper.getById(setmealDTO.getId());
+
         Setmeal setmeal = new Setmeal();
         BeanUtils.copyProperties(setmealDTO, setmeal);
 
@@ -133,6 +150,10 @@ public class SetmealServiceImpl implements SetmealService {
         });
         //3、重新插入套餐和菜品的关联关系，操作setmeal_dish表，执行insert
         setmealDishMapper.insertBatch(setmealDishes);
+
+        Long oldCategoryId = setmealDB == null ? null : setmealDB.getCategoryId();
+        eventPublisher.publishEvent(MenuChangeEvent.setmeal(
+                Arrays.asList(oldCategoryId, setmealDTO.getCategoryId()), Collections.singletonList(setmealId)));
     }
 
     /**
@@ -160,6 +181,12 @@ public class SetmealServiceImpl implements SetmealService {
                 .status(status)
                 .build();
         setmealMapper.update(setmeal);
+
+        Setmeal setmealDB = setmealMapper.getById(id);
+        if (setmealDB != null) {
+            eventPublisher.publishEvent(MenuChangeEvent.setmeal(
+                    Collections.singletonList(setmealDB.getCategoryId()), Collections.singletonList(id)));
+        }
     }
 
     /**
@@ -172,6 +199,18 @@ public class SetmealServiceImpl implements SetmealService {
         return list;
     }
 
+    /**
+     * 根据id批量查询起售中的套餐
+     * @param ids
+     * @return
+     */
+    public List<Setmeal> listByIds(List<Long> ids) {
+        if (ids == null || ids.isEmpty()) {
+            return new ArrayList<>();
+        }
+        return setmealMapper.getByIds(ids);
+    }
+
     /**
      * 根据id查询菜品选项
      * @param id
@@ -1,91 +1,103 @@
 package com.sky.service.impl;
 
+import com.sky.cache.MenuItem;
+import com.sky.cache.MenuItemTable;
+import com.sky.cart.ShoppingCartRepository;
+import com.sky.constant.MessageConstant;
+import com.sky.constant.StatusConstant;
 import com.sky.context.BaseContext;
+import com.sky.dto.ShoppingCartBatchDTO;
 import com.sky.dto.ShoppingCartDTO;
-import com.sky.entity.Dish;
-import com.sky.entity.Setmeal;
+import com.sky.dto.ShoppingCartOperationDTO;
 import com.sky.entity.ShoppingCart;
-import com.sky.mapper.DishMapper;
-import com.sky.mapper.SetmealMapper;
-import com.sky.mapper.ShoppingCartMapper;
+import com.sky.exception.ShoppingCartBusinessException;
 import com.sky.service.ShoppingCartService;
 import org.springframework.beans.BeanUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
-import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
 
 @Service
 public class ShoppingCartServiceImpl implements ShoppingCartService {
+    //一次批量请求最多包含的操作数
+    private static final int MAX_BATCH_OPERATIONS = 100;
+
     @Autowired
-    private ShoppingCartMapper shoppingCartMapper;
-    @Autowired
-    private DishMapper dishMapper;
+    private ShoppingCartRepository shoppingCartRepository;
     @Autowired
-    private SetmealMapper setmealMapper;
+    private MenuItemTable menuItemTable;
 
     @Override
     public void addShoppingCart(ShoppingCartDTO shoppingCartDTO) {
-        // 判断购物车中是否有该商品
         ShoppingCart shoppingCart = new ShoppingCart();
         BeanUtils.copyProperties(shoppingCartDTO, shoppingCart);
-        shoppingCart.setUserId(BaseContext.getCurrentId());
-        List<ShoppingCart> list = shoppingCartMapper.list(shoppingCart);
-        // 如果有，数量加1
-        if (list != null && !list.isEmpty()) {
-            ShoppingCart cart = list.get(0);
-            cart.setNumber(cart.getNumber() + 1);
-            shoppingCartMapper.updateNumberById(cart);
-        } else {
-            // 如果没有，则添加商品到数据库中
-            // 判断本次添加到购物车到是菜品还是套餐
-            // 如果是菜品，则查询菜品信息
-            if (shoppingCartDTO.getDishId() != null) {
-                Dish dish = dishMapper.getByOneId(shoppingCartDTO.getDishId());
-                shoppingCart.setName(dish.getName());
-                shoppingCart.setImage(dish.getImage());
-                shoppingCart.setAmount(dish.getPrice());
-            } else {
-                // 如果是套餐，则查询套餐信息
-                Setmeal setmeal = setmealMapper.getById(shoppingCartDTO.getSetmealId());
-                shoppingCart.setName(setmeal.getName());
-                shoppingCart.setImage(setmeal.getImage());
-                shoppingCart.setAmount(setmeal.getPrice());
-            }
-            shoppingCart.setNumber(1);
-            shoppingCart.setCreateTime(LocalDateTime.now());
-            shoppingCartMapper.insert(shoppingCart);
-
-        }
+        fillItem(shoppingCart);
+        // 已有该商品则数量加1，没有则添加
+        shoppingCartRepository.change(BaseContext.getCurrentId(), shoppingCart, 1);
     }
 
     @Override
     public List<ShoppingCart> showShoppingCart() {
-        Long userId = BaseContext.getCurrentId();
-        ShoppingCart shoppingCart = ShoppingCart.builder().userId(userId).build();
-        List<ShoppingCart> list = shoppingCartMapper.list(shoppingCart);
-        return list;
+        return shoppingCartRepository.list(BaseContext.getCurrentId());
     }
 
     @Override
     public void cleanShoppingCart() {
-        Long userId = BaseContext.getCurrentId();
-        shoppingCartMapper.deleteByUserId(userId);
+        shoppingCartRepository.clear(BaseContext.getCurrentId());
     }
 
     @Override
     public void subShoppingCart(ShoppingCartDTO shoppingCartDTO) {
         ShoppingCart shoppingCart = new ShoppingCart();
         BeanUtils.copyProperties(shoppingCartDTO, shoppingCart);
-        List<ShoppingCart> list = shoppingCartMapper.list(shoppingCart);
-        ShoppingCart cart = list.get(0);
-        // 如果是菜品，则菜品的数量减一，如果是套餐，则套餐的数量减一
-        if (cart.getNumber() != 1) {
-            cart.setNumber(cart.getNumber() - 1);
-            shoppingCartMapper.updateNumberById(cart);
-        } else {
-            shoppingCartMapper.deleteById(cart);
+        // 商品数量减一，减到0时从购物车中移除
+        shoppingCartRepository.change(BaseContext.getCurrentId(), shoppingCart, -1);
+    }
+
+    @Override
+    public List<ShoppingCart> batchShoppingCart(ShoppingCartBatchDTO shoppingCartBatchDTO) {
+        List<ShoppingCartOperationDTO> operations = shoppingCartBatchDTO.getOperations();
+        if (operations == null || operations.isEmpty() || operations.size() > MAX_BATCH_OPERATIONS) {
+            throw new ShoppingCartBusinessException(MessageConstant.CART_OPERATION_INVALID);
+        }
+        // 先校验全部操作，有一个不合法则整批不执行
+        List<ShoppingCart> items = new ArrayList<>();
+        for (ShoppingCartOperationDTO operation : operations) {
+            //单次数量变化不超过单个商品的最大数量
+            if ((operation.getDishId() == null) == (operation.getSetmealId() == null)
+                    || operation.getDelta() == null || operation.getDelta() == 0
+                    || operation.getDelta() > ShoppingCartRepository.MAX_NUMBER
+                    || operation.getDelta() < -ShoppingCartRepository.MAX_NUMBER) {
+                throw new ShoppingCartBusinessException(MessageConstant.CART_OPERATION_INVALID);
+            }
+            ShoppingCart shoppingCart = new ShoppingCart();
+            BeanUtils.copyProperties(operation, shoppingCart);
+            shoppingCart.setNumber(operation.getDelta());
+            if (operation.getDelta() > 0) {
+                fillItem(shoppingCart);
+            }
+            items.add(shoppingCart);
+        }
+        Long userId = BaseContext.getCurrentId();
+        shoppingCartRepository.changeAll(userId, items);
+        return shoppingCartRepository.list(userId);
+    }
+
+    // 判断是菜品还是套餐，填充商品名称、图片、金额；停售的商品不能加入购物车
+    private void fillItem(ShoppingCart shoppingCart) {
+        MenuItem item = shoppingCart.getDishId() != null
+                ? menuItemTable.getDish(shoppingCart.getDishId())
+                : menuItemTable.getSetmeal(shoppingCart.getSetmealId());
+        if (item == null) {
+            throw new ShoppingCartBusinessException(MessageConstant.ITEM_NOT_FOUND);
+        }
+        if (!StatusConstant.ENABLE.equals(item.getStatus())) {
+            throw new ShoppingCartBusinessException(MessageConstant.ITEM_DISABLED);
         }
+        shoppingCart.setName(item.getName());
+        shoppingCart.setImage(item.getImage());
+        shoppingCart.setAmount(item.getPrice());
     }
 }
@@ -1,36 +1,42 @@
 package com.sky.service.impl;
 
-import com.sky.constant.StatusConstant;
+import com.sky.counter.OrderStatusCounter;
 import com.sky.entity.Orders;
 import com.sky.mapper.DishMapper;
-import com.sky.mapper.OrderMapper;
 import com.sky.mapper.SetmealMapper;
-import com.sky.mapper.UserMapper;
+import com.sky.report.DailyReportCache;
+import com.sky.report.DailyStatsSeries;
 import com.sky.service.WorkspaceService;
 import com.sky.vo.BusinessDataVO;
 import com.sky.vo.DishOverViewVO;
 import com.sky.vo.OrderOverViewVO;
 import com.sky.vo.SetmealOverViewVO;
+import com.sky.vo.WorkspaceVO;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.stereotype.Service;
 import java.time.LocalDateTime;
-import java.time.LocalTime;
-import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Supplier;
 
 @Service
 @Slf4j
 public class WorkspaceServiceImpl implements WorkspaceService {
 
-    @Autowired
-    private OrderMapper orderMapper;
-    @Autowired
-    private UserMapper userMapper;
     @Autowired
     private DishMapper dishMapper;
     @Autowired
     private SetmealMapper setmealMapper;
+    @Autowired
+    private OrderStatusCounter orderStatusCounter;
+    @Autowired
+    private DailyReportCache dailyReportCache;
+    @Autowired
+    private ThreadPoolTaskExecutor workspaceExecutor;
 
     /**
      * 根据时间段统计营业数据
@@ -47,72 +53,36 @@ public class WorkspaceServiceImpl implements WorkspaceService {
          * 新增用户：当日新增用户的数量
          */
 
-        Map map = new HashMap();
-        map.put("begin",begin);
-        map.put("end",end);
-
-        //查询总订单数
-        Integer totalOrderCount = orderMapper.countByMap(map);
-
-        map.put("status", Orders.COMPLETED);
-        //营业额
-        Double turnover = orderMapper.sumByMap(map);
-        turnover = turnover == null? 0.0 : turnover;
-
-        //有效订单数
-        Integer validOrderCount = orderMapper.countByMap(map);
-
-        Double unitPrice = 0.0;
-
-        Double orderCompletionRate = 0.0;
-        if(totalOrderCount != 0 && validOrderCount != 0){
-            //订单完成率
-            orderCompletionRate = validOrderCount.doubleValue() / totalOrderCount;
-            //平均客单价
-            unitPrice = turnover / validOrderCount;
-        }
-
-        //新增用户数
-        Integer newUsers = userMapper.countByMap(map);
-
-        return BusinessDataVO.builder()
-                .turnover(turnover)
-                .validOrderCount(validOrderCount)
-                .orderCompletionRate(orderCompletionRate)
-                .unitPrice(unitPrice)
-                .newUsers(newUsers)
-                .build();
+        //从每日营业数据汇总表中按天累加
+        DailyStatsSeries series = new DailyStatsSeries(begin.toLocalDate(), end.toLocalDate());
+        dailyReportCache.getStats(begin.toLocalDate(), end.toLocalDate()).forEach(series::add);
+        return series.totalBusinessData();
     }
 
-
     /**
      * 查询订单管理数据
      *
      * @return
      */
     public OrderOverViewVO getOrderOverView() {
-        Map map = new HashMap();
-        map.put("begin", LocalDateTime.now().with(LocalTime.MIN));
-        map.put("status", Orders.TO_BE_CONFIRMED);
+        //今天的订单计数，从redis中一次读出
+        List<Integer> counts = orderStatusCounter.countToday(Orders.TO_BE_CONFIRMED, Orders.CONFIRMED,
+                Orders.COMPLETED, Orders.CANCELLED, OrderStatusCounter.ALL);
 
         //待接单
-        Integer waitingOrders = orderMapper.countByMap(map);
+        Integer waitingOrders = counts.get(0);
 
         //待派送
-        map.put("status", Orders.CONFIRMED);
-        Integer deliveredOrders = orderMapper.countByMap(map);
+        Integer deliveredOrders = counts.get(1);
 
         //已完成
-        map.put("status", Orders.COMPLETED);
-        Integer completedOrders = orderMapper.countByMap(map);
+        Integer completedOrders = counts.get(2);
 
         //已取消
-        map.put("status", Orders.CANCELLED);
-        Integer cancelledOrders = orderMapper.countByMap(map);
+        Integer cancelledOrders = counts.get(3);
 
         //全部订单
-        map.put("status", null);
-        Integer allOrders = orderMapper.countByMap(map);
+        Integer allOrders = counts.get(4);
 
         return OrderOverViewVO.builder()
                 .waitingOrders(waitingOrders)
@@ -129,17 +99,8 @@ public class WorkspaceServiceImpl implements WorkspaceService {
      * @return
      */
     public DishOverViewVO getDishOverView() {
-        Map map = new HashMap();
-        map.put("status", StatusConstant.ENABLE);
-        Integer sold = dishMapper.countByMap(map);
-
-        map.put("status", StatusConstant.DISABLE);
-        Integer discontinued = dishMapper.countByMap(map);
-
-        return DishOverViewVO.builder()
-                .sold(sold)
-                .discontinued(discontinued)
-                .build();
+        //起售、停售数量在一次查询中统计
+        return dishMapper.getOverView();
     }
 
     /**
@@ -148,16 +109,45 @@ public class WorkspaceServiceImpl implements WorkspaceService {
      * @return
      */
     public SetmealOverViewVO getSetmealOverView() {
-        Map map = new HashMap();
-        map.put("status", StatusConstant.ENABLE);
-        Integer sold = setmealMapper.countByMap(map);
+        return setmealMapper.getOverView();
+    }
 
-        map.put("status", StatusConstant.DISABLE);
-        Integer discontinued = setmealMapper.countByMap(map);
+    /**
+     * 查询工作台全部数据，四部分数据并发查询，每部分的耗时记录在日志中
+     *
+     * @param begin
+     * @param end
+     * @return
+     */
+    public WorkspaceVO getWorkspace(LocalDateTime begin, LocalDateTime end) {
+        long start = System.currentTimeMillis();
+        CompletableFuture<BusinessDataVO> businessData = supplyTimed("运营数据", () -> getBusinessData(begin, end));
+        CompletableFuture<OrderOverViewVO> orderOverView = supplyTimed("订单管理数据", this::getOrderOverView);
+        CompletableFuture<DishOverViewVO> dishOverView = supplyTimed("菜品总览", this::getDishOverView);
+        CompletableFuture<SetmealOverViewVO> setmealOverView = supplyTimed("套餐总览", this::getSetmealOverView);
+
+        try {
+            WorkspaceVO workspaceVO = WorkspaceVO.builder()
+                    .businessData(businessData.join())
+                    .orderOverView(orderOverView.join())
+                    .dishOverView(dishOverView.join())
+                    .setmealOverView(setmealOverView.join())
+                    .build();
+            log.info("工作台数据查询完成，总耗时:{}ms", System.currentTimeMillis() - start);
+            return workspaceVO;
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException cause ? cause : new RuntimeException(e.getCause());
+        }
+    }
 
-        return SetmealOverViewVO.builder()
-                .sold(sold)
-                .discontinued(discontinued)
-                .build();
+    private <T> CompletableFuture<T> supplyTimed(String name, Supplier<T> supplier) {
+        return CompletableFuture.supplyAsync(() -> {
+            long start = System.currentTimeMillis();
+            try {
+                return supplier.get();
+            } finally {
+                log.info("工作台{}查询耗时:{}ms", name, System.currentTimeMillis() - start);
+            }
+        }, workspaceExecutor);
     }
 }
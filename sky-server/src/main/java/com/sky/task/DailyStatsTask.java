@@ -0,0 +1,37 @@
+package com.sky.task;
+
+import com.sky.report.DailyStatsRecorder;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+
+@Component
+@Slf4j
+public class DailyStatsTask {
+
+    //重算最近几天的数据，覆盖跨天完成的订单
+    private static final int REBUILD_DAYS = 7;
+
+    @Autowired
+    private DailyStatsRecorder dailyStatsRecorder;
+
+    /**
+     * 每晚在自动完成派送中订单之后，按订单表重算最近几天的营业数据，纠正增量更新的偏差
+     */
+    @Scheduled(cron = "0 30 2 * * ?")
+    public void rebuildDailyStats() {
+        log.info("重算每日营业数据");
+        LocalDate today = LocalDate.now();
+        for (int i = REBUILD_DAYS; i >= 1; i--) {
+            LocalDate day = today.minusDays(i);
+            try {
+                dailyStatsRecorder.rebuild(day);
+            } catch (Exception e) {
+                log.error("重算{}的营业数据失败", day, e);
+            }
+        }
+    }
+}
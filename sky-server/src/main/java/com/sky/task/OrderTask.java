@@ -1,22 +1,26 @@
 package com.sky.task;
 
+import com.sky.counter.OrderStatusCounter;
 import com.sky.entity.Orders;
 import com.sky.mapper.OrderMapper;
+import com.sky.order.OrderStateMachine;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 
 import java.time.LocalDateTime;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 
 @Component
 @Slf4j
 public class OrderTask {
     @Autowired
     private OrderMapper orderMapper;
+    @Autowired
+    private OrderStatusCounter orderStatusCounter;
+    @Autowired
+    private OrderStateMachine orderStateMachine;
 
     /**
      * 处理超时订单,下单时间超过15分钟未支付，自动取消订单
@@ -27,17 +31,13 @@ public class OrderTask {
         // 计算当前时间之前15分钟的时间
         LocalDateTime time = LocalDateTime.now().plusMinutes(-15);
         List<Orders> ordersDB = orderMapper.processTimeoutOrder(Orders.PENDING_PAYMENT, time);
-        if (ordersDB != null && !ordersDB.isEmpty()) {
-            List<Long> ids = ordersDB.stream().map(Orders::getId).toList();
-            Map<String, Object> params = new HashMap<>();
-            params.put("status", Orders.CANCELLED); // 假设状态为2表示取消
-            params.put("cancelReason", "订单超时,自动取消");
-            params.put("cancelTime", LocalDateTime.now());
-            params.put("ids", ids);
-            orderMapper.updateOrderStatus(params);
+        // 逐个按状态条件取消，查询之后已支付的订单不会被取消
+        for (Orders orders : ordersDB) {
+            Orders changes = new Orders();
+            changes.setCancelReason("订单超时,自动取消");
+            changes.setCancelTime(LocalDateTime.now());
+            orderStateMachine.tryTransit(orders, OrderStateMachine.Transition.TIMEOUT_CANCEL, changes);
         }
-
-
     }
 
     /**
@@ -48,12 +48,19 @@ public class OrderTask {
         log.info("定时处理处于派送中的订单");
         LocalDateTime time = LocalDateTime.now().plusMinutes(-60);
         List<Orders> ordersDB = orderMapper.processTimeoutOrder(Orders.DELIVERY_IN_PROGRESS, time);
-        if (ordersDB != null && !ordersDB.isEmpty()) {
-            List<Long> ids = ordersDB.stream().map(Orders::getId).toList();
-            Map<String, Object> params = new HashMap<>();
-            params.put("status", Orders.COMPLETED);
-            params.put("ids", ids);
-            orderMapper.updateOrderStatus(params);
+        for (Orders orders : ordersDB) {
+            Orders changes = new Orders();
+            changes.setDeliveryTime(LocalDateTime.now());
+            orderStateMachine.tryTransit(orders, OrderStateMachine.Transition.COMPLETE, changes);
         }
     }
+
+    /**
+     * 订单计数器对账，按数据库纠正redis中的计数
+     */
+    @Scheduled(cron = "0 */5 * * * ?")
+    public void reconcileOrderCounter() {
+        log.info("订单计数器对账");
+        orderStatusCounter.reconcile();
+    }
 }
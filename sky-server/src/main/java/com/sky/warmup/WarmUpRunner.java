@@ -0,0 +1,204 @@
+package com.sky.warmup;
+
+import com.sky.cache.CategoryBloomFilter;
+import com.sky.cache.MenuChangeLog;
+import com.sky.cart.ShoppingCartRepository;
+import com.sky.constant.CategoryConstant;
+import com.sky.constant.JwtClaimsConstant;
+import com.sky.constant.StatusConstant;
+import com.sky.entity.Category;
+import com.sky.entity.Dish;
+import com.sky.entity.Setmeal;
+import com.sky.mapper.CategoryMapper;
+import com.sky.mapper.DishFlavorMapper;
+import com.sky.mapper.DishMapper;
+import com.sky.mapper.SetmealMapper;
+import com.sky.properties.JwtProperties;
+import com.sky.properties.WarmUpProperties;
+import com.sky.service.MenuService;
+import com.sky.utils.JwtUtil;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.availability.AvailabilityChangeEvent;
+import org.springframework.boot.availability.ReadinessState;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 启动预热：容器刷新完成后、服务标记为就绪之前执行
+ * 1、预加载所有起售分类的菜品、套餐缓存以及菜单快照
+ * 2、执行一遍C端高频的mapper语句
+ * 3、通过本机http请求多轮调用C端高频接口，触发JIT编译
+ * 整个过程受时间预算限制，超出预算后跳过剩余步骤
+ *
+ * 预热期间就绪状态为REFUSING_TRAFFIC，/actuator/health/readiness 返回OUT_OF_SERVICE；
+ * ApplicationRunner执行完之后spring boot把就绪状态切换为ACCEPTING_TRAFFIC，readiness返回UP，
+ * 负载均衡需要配置为按readiness探针摘除、接入节点，预热期间不会有流量进来
+ */
+@Component
+@Slf4j
+public class WarmUpRunner implements ApplicationRunner {
+
+    //模拟请求使用的用户id，不对应真实用户
+    private static final long WARM_UP_USER_ID = 0L;
+
+    @Autowired
+    private WarmUpProperties warmUpProperties;
+    @Autowired
+    private JwtProperties jwtProperties;
+    @Autowired
+    private Environment environment;
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+    @Autowired
+    private MenuService menuService;
+    @Autowired
+    private MenuChangeLog menuChangeLog;
+    @Autowired
+    private CategoryBloomFilter categoryBloomFilter;
+    @Autowired
+    private CategoryMapper categoryMapper;
+    @Autowired
+    private DishMapper dishMapper;
+    @Autowired
+    private DishFlavorMapper dishFlavorMapper;
+    @Autowired
+    private SetmealMapper setmealMapper;
+    @Autowired
+    private ShoppingCartRepository shoppingCartRepository;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (!warmUpProperties.isEnabled()) {
+            return;
+        }
+        AvailabilityChangeEvent.publish(eventPublisher, this, ReadinessState.REFUSING_TRAFFIC);
+        long start = System.currentTimeMillis();
+        long deadline = start + warmUpProperties.getBudgetMillis();
+        log.info("开始启动预热，时间预算:{}ms", warmUpProperties.getBudgetMillis());
+
+        List<Category> categories = categoryMapper.list(null);
+        categoryBloomFilter.rebuild();
+
+        step("预加载菜单缓存", deadline, () -> preloadCaches(categories, deadline));
+        step("预热mapper语句", deadline, () -> prepareStatements(categories));
+        step("模拟请求", deadline, () -> replayRequests(categories, deadline));
+
+        log.info("启动预热结束，总耗时:{}ms", System.currentTimeMillis() - start);
+    }
+
+    private void step(String name, long deadline, Runnable action) {
+        if (System.currentTimeMillis() >= deadline) {
+            log.warn("预热时间预算已用完，跳过:{}", name);
+            return;
+        }
+        long begin = System.currentTimeMillis();
+        try {
+            action.run();
+            log.info("{}完成，耗时:{}ms", name, System.currentTimeMillis() - begin);
+        } catch (Exception e) {
+            //预热失败不影响启动
+            log.error("{}失败，耗时:{}ms", name, System.currentTimeMillis() - begin, e);
+        }
+    }
+
+    private void preloadCaches(List<Category> categories, long deadline) {
+        for (Category category : categories) {
+            if (System.currentTimeMillis() >= deadline) {
+                return;
+            }
+            if (CategoryConstant.SETMEAL_TYPE.equals(category.getType())) {
+                menuService.getSetmealPayload(category.getId());
+            } else {
+                menuService.getDishPayload(category.getId());
+            }
+        }
+        menuService.getSnapshotPayload(menuChangeLog.currentVersion());
+    }
+
+    private void prepareStatements(List<Category> categories) {
+        Dish dish = new Dish();
+        dish.setStatus(StatusConstant.ENABLE);
+        List<Long> dishIds = dishMapper.list(dish).stream().map(Dish::getId).limit(100).toList();
+        if (!dishIds.isEmpty()) {
+            dishMapper.getById(dishIds);
+            dishFlavorMapper.getByDishIds(dishIds);
+        }
+
+        Setmeal setmeal = new Setmeal();
+        setmeal.setStatus(StatusConstant.ENABLE);
+        List<Long> setmealIds = setmealMapper.list(setmeal).stream().map(Setmeal::getId).limit(100).toList();
+        if (!setmealIds.isEmpty()) {
+            setmealMapper.getByIds(setmealIds);
+        }
+
+        if (!categories.isEmpty()) {
+            categoryMapper.list(categories.get(0).getType());
+        }
+        shoppingCartRepository.list(WARM_UP_USER_ID);
+    }
+
+    private void replayRequests(List<Category> categories, long deadline) {
+        String port = environment.getProperty("local.server.port", environment.getProperty("server.port", "8080"));
+        String baseUrl = "http://127.0.0.1:" + port;
+        String token = JwtUtil.createJWT(jwtProperties.getUserSecretKey(), warmUpProperties.getBudgetMillis(),
+                Map.of(JwtClaimsConstant.USER_ID, WARM_UP_USER_ID));
+
+        List<String> paths = new ArrayList<>();
+        paths.add("/user/category/list");
+        paths.add("/user/shop/status");
+        paths.add("/user/shoppingCart/list");
+        paths.add("/user/menu/snapshot");
+        for (Category category : categories) {
+            if (CategoryConstant.SETMEAL_TYPE.equals(category.getType())) {
+                paths.add("/user/setmeal/list?categoryId=" + category.getId());
+            } else {
+                paths.add("/user/dish/list?categoryId=" + category.getId());
+            }
+        }
+
+        HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(2)).build();
+        int requests = 0;
+        int failures = 0;
+        for (int round = 0; round < warmUpProperties.getRequestRounds(); round++) {
+            for (String path : paths) {
+                if (System.currentTimeMillis() >= deadline) {
+                    log.info("模拟请求达到时间预算，已完成{}次，失败{}次", requests, failures);
+                    return;
+                }
+                HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + path))
+                        .header(jwtProperties.getUserTokenName(), token)
+                        .header("Accept-Encoding", "gzip")
+                        .timeout(Duration.ofSeconds(5))
+                        .GET()
+                        .build();
+                try {
+                    HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+                    if (response.statusCode() >= 400) {
+                        failures++;
+                    }
+                } catch (Exception e) {
+                    failures++;
+                    if (e instanceof InterruptedException) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                }
+                requests++;
+            }
+        }
+        log.info("模拟请求完成{}次，失败{}次", requests, failures);
+    }
+}
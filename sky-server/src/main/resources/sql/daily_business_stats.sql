@@ -0,0 +1,41 @@
+-- 每日营业数据汇总表，报表和工作台从这里读取，不再扫描订单表
+-- 订单、营业额按下单日期统计，与原报表口径一致
+create table daily_business_stats
+(
+    stat_date    date                     not null comment '统计日期' primary key,
+    turnover     decimal(12, 2) default 0 not null comment '营业额，已完成订单金额合计',
+    total_orders int            default 0 not null comment '订单总数',
+    valid_orders int            default 0 not null comment '有效订单数，已完成订单数量',
+    new_users    int            default 0 not null comment '新增用户数',
+    update_time  datetime                 null comment '更新时间'
+) comment '每日营业数据';
+
+-- 每日菜品、套餐销量，按订单明细名称汇总已完成订单
+create table daily_dish_sales
+(
+    stat_date date          not null comment '统计日期',
+    name      varchar(32)   not null comment '菜品或套餐名称',
+    number    int default 0 not null comment '销量',
+    primary key (stat_date, name)
+) comment '每日商品销量';
+
+-- 初始化历史数据
+insert into daily_business_stats (stat_date, turnover, total_orders, valid_orders, new_users, update_time)
+select d.stat_date, sum(d.turnover), sum(d.total_orders), sum(d.valid_orders), sum(d.new_users), now()
+from (select date(order_time) as stat_date, sum(if(status = 5, amount, 0)) as turnover, count(id) as total_orders,
+             sum(if(status = 5, 1, 0)) as valid_orders, 0 as new_users
+      from orders
+      group by date(order_time)
+      union all
+      select date(create_time), 0, 0, 0, count(id)
+      from user
+      group by date(create_time)) d
+group by d.stat_date;
+
+insert into daily_dish_sales (stat_date, name, number)
+select date(o.order_time), od.name, sum(od.number)
+from orders o,
+     order_detail od
+where o.id = od.order_id
+  and o.status = 5
+group by date(o.order_time), od.name;
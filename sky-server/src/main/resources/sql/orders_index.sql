@@ -0,0 +1,4 @@
+-- 订单游标分页使用的索引，(order_time, id) 作为游标，按用户、状态过滤时走对应的前缀索引
+create index idx_orders_time_id on orders (order_time, id);
+create index idx_orders_user_time_id on orders (user_id, order_time, id);
+create index idx_orders_status_time_id on orders (status, order_time, id);
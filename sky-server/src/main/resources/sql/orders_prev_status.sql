@@ -0,0 +1,3 @@
+-- 订单状态机在流转的同一条update中记录流转前的状态，允许多个来源状态的流转据此发布状态变更事件
+alter table orders
+    add prev_status int null comment '上一次状态流转前的状态' after status;
@@ -0,0 +1,112 @@
+package com.sky.cache;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sky.entity.DishFlavor;
+import com.sky.json.JacksonObjectMapper;
+import com.sky.result.Result;
+import com.sky.vo.DishVO;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.data.redis.serializer.JdkSerializationRedisSerializer;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 菜单缓存值的编解码耗时：CompactRedisSerializer 对比 JdkSerializationRedisSerializer
+ * 缓存值与线上一致，为按分类查询菜品得到的MenuPayload，分类下菜品数取10、50、200
+ *
+ * 不在mvn test中执行，test-compile后运行main方法，
+ * 或以test classpath执行 java org.openjdk.jmh.Main CompactRedisSerializerBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CompactRedisSerializerBenchmark {
+
+    @Param({"10", "50", "200"})
+    private int dishes;
+
+    private final CompactRedisSerializer compactSerializer = new CompactRedisSerializer();
+    private final JdkSerializationRedisSerializer jdkSerializer = new JdkSerializationRedisSerializer();
+
+    private MenuPayload payload;
+    private byte[] compactBytes;
+    private byte[] jdkBytes;
+
+    @Setup
+    public void setUp() throws Exception {
+        ObjectMapper objectMapper = new JacksonObjectMapper();
+        payload = MenuPayload.of(objectMapper.writeValueAsBytes(Result.success(dishList(dishes))), false);
+        compactBytes = compactSerializer.serialize(payload);
+        jdkBytes = jdkSerializer.serialize(payload);
+    }
+
+    @Benchmark
+    public byte[] compactEncode() {
+        return compactSerializer.serialize(payload);
+    }
+
+    @Benchmark
+    public Object compactDecode() {
+        return compactSerializer.deserialize(compactBytes);
+    }
+
+    @Benchmark
+    public byte[] jdkEncode() {
+        return jdkSerializer.serialize(payload);
+    }
+
+    @Benchmark
+    public Object jdkDecode() {
+        return jdkSerializer.deserialize(jdkBytes);
+    }
+
+    // 与线上菜品数据规模相近：名称、图片地址、描述，每个菜品2个口味
+    private static List<DishVO> dishList(int size) {
+        List<DishVO> list = new ArrayList<>(size);
+        for (long i = 1; i <= size; i++) {
+            List<DishFlavor> flavors = new ArrayList<>();
+            flavors.add(DishFlavor.builder().id(i * 2).dishId(i).name("辣度").value("[\"不辣\",\"微辣\",\"中辣\",\"重辣\"]").build());
+            flavors.add(DishFlavor.builder().id(i * 2 + 1).dishId(i).name("忌口").value("[\"不要葱\",\"不要蒜\",\"不要香菜\"]").build());
+            list.add(DishVO.builder()
+                    .id(i)
+                    .name("菜品" + i)
+                    .categoryId(11L)
+                    .price(new BigDecimal("38.00"))
+                    .image("https://sky-take-out.oss-cn-beijing.aliyuncs.com/" + UUID.nameUUIDFromBytes(String.valueOf(i).getBytes()) + ".png")
+                    .description("精选食材现做现卖，口味鲜香")
+                    .status(1)
+                    .updateTime(LocalDateTime.of(2024, 3, 15, 10, 0))
+                    .categoryName("热销菜品")
+                    .flavors(flavors)
+                    .build());
+        }
+        return list;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(CompactRedisSerializerBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,198 @@
+package com.sky.cache;
+
+import com.sky.entity.DailyBusinessStats;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.support.NullValue;
+import org.springframework.data.redis.serializer.JdkSerializationRedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CompactRedisSerializerTest {
+
+    private final CompactRedisSerializer serializer = new CompactRedisSerializer();
+    private final JdkSerializationRedisSerializer jdkSerializer = new JdkSerializationRedisSerializer();
+
+    @Test
+    void nullValueRoundTrip() {
+        assertSame(NullValue.INSTANCE, roundTrip(NullValue.INSTANCE));
+    }
+
+    @Test
+    void integerRoundTrip() {
+        for (Integer value : Arrays.asList(0, 1, -1, Integer.MAX_VALUE, Integer.MIN_VALUE)) {
+            assertEquals(value, roundTrip(value));
+        }
+    }
+
+    @Test
+    void longRoundTrip() {
+        for (Long value : Arrays.asList(0L, 1L, -1L, Long.MAX_VALUE, Long.MIN_VALUE)) {
+            assertEquals(value, roundTrip(value));
+        }
+    }
+
+    @Test
+    void stringRoundTrip() {
+        for (String value : Arrays.asList("", "sky-take-out", "苍穹外卖", "a\u0000b")) {
+            assertEquals(value, roundTrip(value));
+        }
+    }
+
+    @Test
+    void menuPayloadRoundTrip() {
+        List<MenuPayload> payloads = Arrays.asList(
+                MenuPayload.of("[]".getBytes(StandardCharsets.UTF_8), true),
+                MenuPayload.of(largeJson(), false));
+        assertNull(payloads.get(0).getGzip());
+        assertTrue(payloads.get(1).getGzip() != null);
+
+        for (MenuPayload payload : payloads) {
+            MenuPayload result = (MenuPayload) roundTrip(payload);
+            assertArrayEquals(payload.getJson(), result.getJson());
+            assertArrayEquals(payload.getGzip(), result.getGzip());
+            assertEquals(payload.getDigest(), result.getDigest());
+            assertEquals(payload.isEmpty(), result.isEmpty());
+        }
+    }
+
+    @Test
+    void dailyBusinessStatsRoundTrip() {
+        DailyBusinessStats stats = DailyBusinessStats.builder()
+                .statDate(LocalDate.of(2024, 3, 15))
+                .turnover(new BigDecimal("12345.60"))
+                .totalOrders(120)
+                .validOrders(98)
+                .newUsers(7)
+                .updateTime(LocalDateTime.of(2024, 3, 16, 1, 0))
+                .build();
+
+        DailyBusinessStats result = (DailyBusinessStats) roundTrip(stats);
+
+        //updateTime只用于落库，不写入缓存
+        assertNull(result.getUpdateTime());
+        stats.setUpdateTime(null);
+        assertEquals(stats, result);
+        assertEquals(2, result.getTurnover().scale());
+    }
+
+    @Test
+    void dailyBusinessStatsWithoutTurnoverReadsAsZero() {
+        DailyBusinessStats stats = DailyBusinessStats.builder()
+                .statDate(LocalDate.of(2024, 3, 15))
+                .totalOrders(0)
+                .validOrders(0)
+                .newUsers(0)
+                .build();
+
+        DailyBusinessStats result = (DailyBusinessStats) roundTrip(stats);
+
+        assertEquals(0, BigDecimal.ZERO.compareTo(result.getTurnover()));
+    }
+
+    @Test
+    void nullAndEmptyBytes() {
+        assertEquals(0, serializer.serialize(null).length);
+        assertNull(serializer.deserialize(null));
+        assertNull(serializer.deserialize(new byte[0]));
+    }
+
+    @Test
+    void unregisteredTypeFallsBackToJdk() {
+        ArrayList<String> value = new ArrayList<>(Arrays.asList("a", "b"));
+
+        byte[] bytes = serializer.serialize(value);
+
+        assertArrayEquals(jdkSerializer.serialize(value), bytes);
+        assertEquals(value, serializer.deserialize(bytes));
+    }
+
+    @Test
+    void legacyJdkValuesStillReadable() {
+        for (Object value : samples()) {
+            Object result = serializer.deserialize(jdkSerializer.serialize(value));
+            if (value instanceof MenuPayload) {
+                MenuPayload payload = (MenuPayload) value;
+                assertArrayEquals(payload.getJson(), ((MenuPayload) result).getJson());
+                assertEquals(payload.getDigest(), ((MenuPayload) result).getDigest());
+            } else {
+                assertEquals(value, result);
+            }
+        }
+    }
+
+    @Test
+    void compactIsSmallerThanJdk() {
+        for (Object value : samples()) {
+            int compact = serializer.serialize(value).length;
+            int jdk = jdkSerializer.serialize(value).length;
+            assertTrue(compact < jdk, value.getClass().getSimpleName() + " compact:" + compact + " jdk:" + jdk);
+        }
+    }
+
+    @Test
+    void unknownTypeIdIsRejected() {
+        byte[] bytes = serializer.serialize(1);
+        bytes[1] = (byte) 200;
+
+        assertThrows(SerializationException.class, () -> serializer.deserialize(bytes));
+    }
+
+    @Test
+    void duplicateTypeIdIsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> serializer.register(new CompactRedisSerializer.Codec<>(2, Short.class) {
+            protected void write(DataOutputStream out, Short value) {
+            }
+
+            protected Short read(DataInputStream in) {
+                return null;
+            }
+        }));
+    }
+
+    private Object roundTrip(Object value) {
+        return serializer.deserialize(serializer.serialize(value));
+    }
+
+    private List<Object> samples() {
+        return Arrays.asList(
+                NullValue.INSTANCE,
+                42,
+                1234567890123L,
+                "苍穹外卖",
+                MenuPayload.of(largeJson(), false),
+                DailyBusinessStats.builder()
+                        .statDate(LocalDate.of(2024, 3, 15))
+                        .turnover(new BigDecimal("12345.60"))
+                        .totalOrders(120)
+                        .validOrders(98)
+                        .newUsers(7)
+                        .build());
+    }
+
+    private static byte[] largeJson() {
+        StringBuilder json = new StringBuilder("[");
+        for (int i = 0; i < 50; i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append("{\"id\":").append(i).append(",\"name\":\"菜品").append(i).append("\",\"price\":18.00}");
+        }
+        return json.append(']').toString().getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,85 @@
+package com.sky.order;
+
+import com.sky.properties.OrderNumberProperties;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class OrderNumberGeneratorTest {
+
+    private static final int THREADS = 8;
+    private static final int IDS_PER_THREAD = 25_000;
+    private static final long NODE_ID = 7;
+    private static final long MIN_IDS_PER_SECOND = 100_000;
+
+    private OrderNumberGenerator generator;
+
+    @BeforeEach
+    void setUp() {
+        OrderNumberProperties properties = new OrderNumberProperties();
+        properties.setNodeId((int) NODE_ID);
+        generator = new OrderNumberGenerator();
+        ReflectionTestUtils.setField(generator, "orderNumberProperties", properties);
+        generator.init();
+    }
+
+    @Test
+    void concurrentIdsAreUniqueAndMonotonicPerThread() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            Future<long[]>[] futures = new Future[THREADS];
+            for (int t = 0; t < THREADS; t++) {
+                futures[t] = executor.submit(() -> {
+                    long[] ids = new long[IDS_PER_THREAD];
+                    start.await();
+                    for (int i = 0; i < IDS_PER_THREAD; i++) {
+                        ids[i] = generator.nextId();
+                    }
+                    return ids;
+                });
+            }
+            long begin = System.nanoTime();
+            start.countDown();
+            long[][] results = new long[THREADS][];
+            for (int t = 0; t < THREADS; t++) {
+                results[t] = futures[t].get(30, TimeUnit.SECONDS);
+            }
+            long elapsedNanos = Math.max(1, System.nanoTime() - begin);
+
+            Set<Long> all = new HashSet<>(THREADS * IDS_PER_THREAD * 2);
+            for (long[] ids : results) {
+                for (int i = 0; i < ids.length; i++) {
+                    if (i > 0) {
+                        assertTrue(ids[i] > ids[i - 1], "同一线程内的订单号需要递增");
+                    }
+                    assertEquals(NODE_ID, (ids[i] >>> 12) & 1023, "订单号中的节点id");
+                    assertTrue(all.add(ids[i]), "订单号重复:" + ids[i]);
+                }
+            }
+            assertEquals(THREADS * IDS_PER_THREAD, all.size());
+            long idsPerSecond = all.size() * TimeUnit.SECONDS.toNanos(1) / elapsedNanos;
+            assertTrue(idsPerSecond >= MIN_IDS_PER_SECOND, "生成速率不足:" + idsPerSecond + "个/秒");
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void numberIsDecimalId() {
+        String number = generator.nextNumber();
+        assertTrue(number.chars().allMatch(Character::isDigit));
+        assertTrue(generator.nextId() > Long.parseLong(number));
+    }
+}